@@ -0,0 +1,6 @@
+#!/usr/bin/env sh
+# Сравнивает два отчёта run.sh: ./compare.sh results/base.json results/new.json [порог, %]
+# Код возврата 1, если есть регрессия больше порога (по умолчанию 10%)
+set -e
+cd "$(dirname "$0")"
+java -cp target/benchmarks.jar com.example.currency4.benchmarks.CompareResults "$@"
@@ -0,0 +1,13 @@
+#!/usr/bin/env sh
+# Собирает приложение и модуль бенчмарков, запускает JMH и сохраняет отчёт в results/.
+# Аргументы передаются JMH как есть: ./run.sh Serialization -p size=1000 -f 2
+set -e
+cd "$(dirname "$0")"
+
+sh ../mvnw -B -q -f ../pom.xml install -DskipTests
+sh ../mvnw -B -q package
+
+mkdir -p results
+result="results/$(date +%Y%m%d-%H%M%S).json"
+java -jar target/benchmarks.jar -rf json -rff "$result" "$@"
+echo "Results written to benchmarks/$result"
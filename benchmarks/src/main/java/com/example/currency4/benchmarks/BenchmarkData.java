@@ -0,0 +1,86 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.CurrencyRate;
+import com.example.currency4.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Детерминированные данные: одинаковый seed даёт одинаковые наборы во всех прогонах
+final class BenchmarkData {
+
+    static final String[] COMMON_CODES = {
+            "USD", "EUR", "GBP", "JPY", "CHF", "CNY", "RUB", "BYN", "PLN", "KZT"};
+
+    // Open Exchange Rates отдаёт около 170 валют
+    private static final int CURRENCY_COUNT = 170;
+    private static final long SEED = 42;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BenchmarkData() {
+    }
+
+    static Map<String, Double> rates() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (String code : COMMON_CODES) {
+            rates.put(code, code.equals("USD") ? 1.0 : 0.01 + random.nextDouble() * 500);
+        }
+        for (int i = 0; rates.size() < CURRENCY_COUNT; i++) {
+            String code = "" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26)
+                    + (char) ('A' + i % 26);
+            rates.putIfAbsent(code, 0.01 + random.nextDouble() * 500);
+        }
+        return rates;
+    }
+
+    // Как /api/currency-rates: все валюты с одинаковым временем обновления и источником
+    static List<CurrencyRate> currencyRates() {
+        List<CurrencyRate> currencyRates = new ArrayList<>(CURRENCY_COUNT);
+        LocalDateTime updated = START.plusNanos(123_456_789);
+        rates().forEach((code, rate) -> {
+            CurrencyRate currencyRate = new CurrencyRate(code, rate);
+            currencyRate.setLastUpdated(updated);
+            currencyRates.add(currencyRate);
+        });
+        return currencyRates;
+    }
+
+    static List<ConversionHistory> histories(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        User user = new User("benchmark");
+        user.setId(1L);
+        List<ConversionHistory> histories = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String from = COMMON_CODES[random.nextInt(COMMON_CODES.length)];
+            String to = COMMON_CODES[random.nextInt(COMMON_CODES.length)];
+            double amount = 1 + random.nextDouble() * 10_000;
+            ConversionHistory history = new ConversionHistory(from, to, amount, amount * 0.9, user);
+            history.setId((long) i + 1);
+            history.setConvertedAt(START.plusSeconds(i * 60L));
+            history.setNotes("Automated conversion");
+            history.setRateSnapshotId(1L);
+            history.setFromRate(1.0);
+            history.setToRate(0.9);
+            histories.add(history);
+        }
+        return histories;
+    }
+
+    static List<ConversionHistoryView> views(int size) {
+        List<ConversionHistoryView> views = new ArrayList<>(size);
+        for (ConversionHistory history : histories(size)) {
+            views.add(new ConversionHistoryView(history.getId(), history.getFromCurrency(),
+                    history.getToCurrency(), history.getAmount(), history.getConvertedAmount(),
+                    history.getConvertedAt(), history.getNotes(), history.getStatus(), 1L, "benchmark",
+                    history.getRateSnapshotId(), history.getFromRate(), history.getToRate()));
+        }
+        return views;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.client.CborResponseDecoder;
+import com.example.currency4.config.CborConfig;
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.entity.CurrencyRate;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON против application/cbor для списков истории и /api/currency-rates: кодирование тем же
+// ObjectMapper, что у конвертеров приложения, разбор — так, как это делает клиент.
+// cbor-plain — CBOR без stringref. Размеры ответов печатаются при подготовке каждого набора
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryEncodingBenchmark {
+
+    private static final TypeReference<List<ConversionHistoryView>> HISTORY = new TypeReference<>() {
+    };
+    private static final TypeReference<List<CurrencyRate>> RATES = new TypeReference<>() {
+    };
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"json", "cbor", "cbor-plain"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private CborResponseDecoder decoder;
+    private List<ConversionHistoryView> views;
+    private List<CurrencyRate> rates;
+    private byte[] historyPayload;
+    private byte[] ratesPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+            case "cbor" -> cborMapper(true);
+            case "cbor-plain" -> cborMapper(false);
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        decoder = format.equals("json") ? null : new CborResponseDecoder();
+        views = withMillis(BenchmarkData.views(size));
+        rates = BenchmarkData.currencyRates();
+        historyPayload = objectMapper.writeValueAsBytes(views);
+        ratesPayload = objectMapper.writeValueAsBytes(rates);
+        System.out.printf("%n%s: history(%d) %d bytes, currency-rates(%d) %d bytes%n", format, size,
+                historyPayload.length, rates.size(), ratesPayload.length);
+    }
+
+    @Benchmark
+    public byte[] encodeHistory() throws IOException {
+        return objectMapper.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public List<ConversionHistoryView> decodeHistory() throws IOException {
+        if (decoder != null) {
+            return decoder.readHistory(historyPayload);
+        }
+        return objectMapper.readValue(historyPayload, HISTORY);
+    }
+
+    @Benchmark
+    public byte[] encodeRates() throws IOException {
+        return objectMapper.writeValueAsBytes(rates);
+    }
+
+    @Benchmark
+    public List<CurrencyRate> decodeRates() throws IOException {
+        if (decoder != null) {
+            return decoder.readRates(ratesPayload);
+        }
+        return objectMapper.readValue(ratesPayload, RATES);
+    }
+
+    private static ObjectMapper cborMapper(boolean stringRefs) {
+        return new CborConfig().cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json(), stringRefs)
+                .getObjectMapper();
+    }
+
+    // convertedAt из базы обычно с долями секунды: с ними и ISO-строка, и массив даты длиннее
+    private static List<ConversionHistoryView> withMillis(List<ConversionHistoryView> views) {
+        List<ConversionHistoryView> result = new ArrayList<>(views.size());
+        for (ConversionHistoryView view : views) {
+            LocalDateTime convertedAt = view.convertedAt().plusNanos(view.id() * 7_919_000L % 1_000_000_000L);
+            result.add(new ConversionHistoryView(view.id(), view.fromCurrency(), view.toCurrency(),
+                    view.amount(), view.convertedAmount(), convertedAt, view.notes(), view.status(),
+                    view.userId(), view.username(), view.rateSnapshotId(), view.fromRate(), view.toRate()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.currency4.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Сравнивает два JSON-отчёта JMH (-rf json). Регрессией считается ухудшение больше порога,
+// которое к тому же превышает сумму погрешностей обоих замеров, чтобы шум не ронял сборку
+public final class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: compare.sh <baseline.json> <candidate.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Result> baseline = read(Path.of(args[0]));
+        Map<String, Result> candidate = read(Path.of(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, Result> entry : baseline.entrySet()) {
+            Result before = entry.getValue();
+            Result after = candidate.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-80s %14s%n", entry.getKey(), "missing");
+                continue;
+            }
+            // Для пропускной способности лучше больше, для времени — меньше
+            double change = (after.score - before.score) / before.score * 100.0;
+            double worse = before.higherIsBetter() ? -change : change;
+            boolean regression = worse > threshold
+                    && Math.abs(after.score - before.score) > before.error + after.error;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.score,
+                    after.score, change, after.unit, regression ? "  REGRESSION" : "");
+        }
+        for (String key : candidate.keySet()) {
+            if (!baseline.containsKey(key)) {
+                System.out.printf("%-80s %14s%n", key, "new");
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d regression(s) above %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+        System.out.printf("No regressions above %.1f%%%n", threshold);
+    }
+
+    private static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0.0);
+            results.put(keyOf(run), new Result(run.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0.0 : error, metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    // Параметры сортируются, чтобы порядок @Param в отчёте не влиял на сопоставление
+    private static String keyOf(JsonNode run) {
+        String benchmark = run.path("benchmark").asText().replace("com.example.currency4.benchmarks.", "");
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            params.put(field.getKey(), field.getValue().asText());
+        }
+        String threads = run.path("threads").asText("1");
+        return benchmark + (params.isEmpty() ? "" : params.toString()) + " [" + run.path("mode").asText()
+                + ", " + threads + "t]";
+    }
+
+    private record Result(String mode, double score, double error, String unit) {
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.model.RateTable;
+import com.example.currency4.service.CurrencyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// Путь POST /api/convert без HTTP и записи истории: разбор кодов и расчёт по снимку
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private CurrencyService currencyService;
+    private RateSnapshot snapshot;
+    private RateTable table;
+    private int fromIndex;
+    private int toIndex;
+    private double[] target;
+
+    @Setup
+    public void setUp() {
+        // convertAmount не обращается ни к сети, ни к БД, поэтому зависимости не нужны
+        currencyService = new CurrencyService(null, null, null, null, "", "", 1000);
+        snapshot = new RateSnapshot(1, Instant.now(), "USD", BenchmarkData.rates());
+        table = snapshot.getTable();
+        fromIndex = table.indexOf("EUR");
+        toIndex = table.indexOf("JPY");
+        target = new double[table.size()];
+    }
+
+    @Benchmark
+    public double convertByIndex() {
+        return currencyService.convertAmount(fromIndex, toIndex, 100.0, table);
+    }
+
+    @Benchmark
+    public double convertByCode() {
+        return currencyService.convertAmount("eur", "jpy", 100.0, snapshot);
+    }
+
+    @Benchmark
+    public double[] convertToAll() {
+        table.getCrossRates().convertAll(fromIndex, 100.0, target);
+        return target;
+    }
+}
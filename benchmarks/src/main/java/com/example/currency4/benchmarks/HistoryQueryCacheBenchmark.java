@@ -0,0 +1,65 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.cache.CacheConfig;
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.dto.ConversionHistoryView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Кэш выборок /api/history из CacheConfig: попадание и промах с загрузкой, в том числе под конкуренцией
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryQueryCacheBenchmark {
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final long TTL_MS = 60_000;
+
+    @Param({"100"})
+    public int rows;
+
+    private HistoryQueryCache cache;
+    private List<ConversionHistoryView> result;
+    private int missKey;
+
+    @Setup
+    public void setUp() {
+        cache = new CacheConfig().conversionHistoryCache(MAX_ENTRIES, TTL_MS);
+        result = BenchmarkData.views(rows);
+        cache.get(HistoryQueryCache.Namespace.FROM, "USD", () -> result);
+    }
+
+    @Benchmark
+    public List<ConversionHistoryView> hit() {
+        return cache.get(HistoryQueryCache.Namespace.FROM, "USD", () -> result);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<ConversionHistoryView> hitContended() {
+        return cache.get(HistoryQueryCache.Namespace.FROM, "USD", () -> result);
+    }
+
+    // Ключи по кругу больше ёмкости: каждый вызов загружает значение и вытесняет старую запись
+    @Benchmark
+    public List<ConversionHistoryView> missWithEviction() {
+        missKey = (missKey + 1) % (MAX_ENTRIES * 2);
+        return cache.get(HistoryQueryCache.Namespace.TO, Integer.toString(missKey), () -> result);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.model.RateTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// RateTable против прежнего поиска по Map<String, Double> с приведением регистра на каждом запросе
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLookupBenchmark {
+
+    private RateTable table;
+    private Map<String, Double> rateMap;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        rateMap = new HashMap<>(BenchmarkData.rates());
+        table = RateTable.of(rateMap);
+    }
+
+    private String nextCode() {
+        next = (next + 1) % BenchmarkData.COMMON_CODES.length;
+        return BenchmarkData.COMMON_CODES[next];
+    }
+
+    @Benchmark
+    public double rateTableByCode() {
+        return table.rateAt(table.indexOf(nextCode()));
+    }
+
+    @Benchmark
+    public double rateTableLowerCase() {
+        return table.rateAt(table.indexOf("eur"));
+    }
+
+    @Benchmark
+    public double rateTableUnknownCode() {
+        return table.rateAt(table.indexOf("XXX"));
+    }
+
+    @Benchmark
+    public double rateMapByCode() {
+        return rateMap.getOrDefault(nextCode().toUpperCase(Locale.ROOT), 1.0);
+    }
+
+    @Benchmark
+    public RateTable buildRateTable() {
+        return RateTable.of(rateMap);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.dto.ConvertResponse;
+import com.example.currency4.entity.ConversionHistory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация ответов истории и конвертации тем же ObjectMapper, что собирает Spring Boot.
+// *Reflective — прежний путь через BeanSerializer: аннотации, в том числе @JsonSerialize, отключены.
+// Выделение памяти на операцию: -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper reflectiveMapper;
+    private List<ConversionHistory> histories;
+    private List<ConversionHistoryView> views;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        reflectiveMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS,
+                        MapperFeature.USE_ANNOTATIONS)
+                .build();
+        histories = BenchmarkData.histories(size);
+        views = BenchmarkData.views(size);
+    }
+
+    @Benchmark
+    public byte[] entities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(histories);
+    }
+
+    @Benchmark
+    public byte[] views() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public byte[] viewsReflective() throws JsonProcessingException {
+        return reflectiveMapper.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public byte[] convertResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ConvertResponse.ofSnapshot("EUR", "JPY", 16_250.75, 42));
+    }
+
+    // Так /api/convert отвечал раньше: новый HashMap на каждый ответ
+    @Benchmark
+    public byte[] convertResponseMap() throws JsonProcessingException {
+        Map<String, Object> result = new HashMap<>();
+        result.put("fromCurrency", "EUR");
+        result.put("toCurrency", "JPY");
+        result.put("convertedAmount", 16_250.75);
+        result.put("snapshotVersion", 42L);
+        return objectMapper.writeValueAsBytes(result);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.currency4.benchmarks;
+
+import com.example.currency4.cache.CacheConfig;
+import com.example.currency4.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Кэши Caffeine из CacheConfig: прямое обращение и вызов через прокси @Cacheable, как в UserService
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpringCacheBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private Cache userCache;
+    private CachedUsers cachedUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        // Без ConversionService, которую ставит Spring Boot, currency.cache.names не разбирается
+        // по запятым в список
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "currency.cache.names", "userCache,currencyRateCache,conversionHistoryCache",
+                "currency.cache.spec.userCache", "maximumSize=1000,expireAfterWrite=10m")));
+        context.register(CacheConfig.class, CachedUsers.class);
+        context.refresh();
+        userCache = context.getBean(CacheManager.class).getCache("userCache");
+        cachedUsers = context.getBean(CachedUsers.class);
+        // Первый вызов через прокси заполняет кэш
+        cachedUsers.findById(1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object directHit() {
+        return userCache.get(1L, User.class);
+    }
+
+    @Benchmark
+    public Object directMiss() {
+        return userCache.get(-1L);
+    }
+
+    @Benchmark
+    public User cacheableProxyHit() {
+        return cachedUsers.findById(1L);
+    }
+
+    public static class CachedUsers {
+
+        @Cacheable(value = "userCache", key = "#id")
+        public User findById(Long id) {
+            User user = new User("benchmark");
+            user.setId(id);
+            return user;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.currency4;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
+@EnableScheduling
 public class Currency4Application {
 
 	public static void main(String[] args) {
@@ -13,7 +17,13 @@ public class Currency4Application {
 	}
 
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public RestTemplate restTemplate(
+			@Value("${open.exchange.api.connect-timeout-ms:2000}") int connectTimeoutMs,
+			@Value("${open.exchange.api.read-timeout-ms:5000}") int readTimeoutMs) {
+		// Без явных таймаутов зависший upstream держит поток запроса неограниченно долго
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(connectTimeoutMs);
+		requestFactory.setReadTimeout(readTimeoutMs);
+		return new RestTemplate(requestFactory);
 	}
 }
\ No newline at end of file
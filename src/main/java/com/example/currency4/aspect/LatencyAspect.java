@@ -0,0 +1,58 @@
+package com.example.currency4.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Замеряет только время: аргументы и результаты не форматируются, поэтому на горячем пути
+// нет ни toString больших коллекций, ни записи в лог
+@Aspect
+@Component
+public class LatencyAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyAspect.class);
+
+    private final LatencyRegistry latencyRegistry;
+    private final double debugSampleRate;
+
+    public LatencyAspect(LatencyRegistry latencyRegistry,
+                         @Value("${currency.instrumentation.debug-sample-rate:0}") double debugSampleRate) {
+        if (debugSampleRate < 0 || debugSampleRate > 1) {
+            throw new IllegalArgumentException("Debug sample rate must be between 0 and 1");
+        }
+        this.latencyRegistry = latencyRegistry;
+        this.debugSampleRate = debugSampleRate;
+    }
+
+    @Around("within(@org.springframework.web.bind.annotation.RestController *)"
+            + " || within(com.example.currency4.repository..*)"
+            + " || target(org.springframework.data.repository.Repository)")
+    public Object recordLatency(ProceedingJoinPoint joinPoint) throws Throwable {
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            LatencyHistogram histogram = latencyRegistry.histogramFor(joinPoint.getTarget().getClass(),
+                    ((MethodSignature) joinPoint.getSignature()).getMethod());
+            histogram.record(elapsed, failed);
+            if (debugSampleRate > 0 && logger.isDebugEnabled()
+                    && ThreadLocalRandom.current().nextDouble() < debugSampleRate) {
+                logger.debug("{} took {} us{}", joinPoint.getSignature().toShortString(),
+                        TimeUnit.NANOSECONDS.toMicros(elapsed),
+                        failed ? " and failed" : "");
+            }
+        }
+    }
+}
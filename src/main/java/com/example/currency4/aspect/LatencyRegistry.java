@@ -0,0 +1,61 @@
+package com.example.currency4.aspect;
+
+import com.example.currency4.model.LatencyStats;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class LatencyRegistry {
+
+    private static final String APPLICATION_PACKAGE = "com.example.currency4.";
+
+    // Два уровня ключей вместо строки "Тип.метод": поиск гистограммы на каждом вызове ничего не аллоцирует
+    private final Map<Class<?>, Map<Method, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    public LatencyHistogram histogramFor(Class<?> targetClass, Method method) {
+        Map<Method, LatencyHistogram> byMethod = histograms.get(targetClass);
+        if (byMethod == null) {
+            byMethod = histograms.computeIfAbsent(targetClass, type -> new ConcurrentHashMap<>());
+        }
+        LatencyHistogram histogram = byMethod.get(method);
+        if (histogram == null) {
+            histogram = byMethod.computeIfAbsent(method, m -> new LatencyHistogram(
+                    displayName(targetClass) + "." + m.getName(), layerOf(targetClass)));
+        }
+        return histogram;
+    }
+
+    public List<LatencyStats> getStats() {
+        return histograms.values().stream()
+                .flatMap(byMethod -> byMethod.values().stream())
+                .map(LatencyHistogram::getStats)
+                .sorted(Comparator.comparing(LatencyStats::getLayer).thenComparing(LatencyStats::getName))
+                .toList();
+    }
+
+    // Репозитории Spring Data — JDK-прокси: имя берётся у нашего интерфейса, а не у $ProxyNN
+    private static String displayName(Class<?> targetClass) {
+        if (Proxy.isProxyClass(targetClass)) {
+            for (Class<?> type : targetClass.getInterfaces()) {
+                if (type.getName().startsWith(APPLICATION_PACKAGE)) {
+                    return type.getSimpleName();
+                }
+            }
+        }
+        return ClassUtils.getUserClass(targetClass).getSimpleName();
+    }
+
+    private static String layerOf(Class<?> targetClass) {
+        return AnnotatedElementUtils.hasAnnotation(ClassUtils.getUserClass(targetClass), RestController.class)
+                ? "controller" : "repository";
+    }
+}
@@ -1,32 +0,0 @@
-package com.example.currency4.aspect;
-
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
-import org.aspectj.lang.annotation.AfterThrowing;
-import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
-
-@Aspect
-@Component
-public class LoggingAspect {
-
-    private static final Logger logger = LoggerFactory.getLogger(LoggingAspect.class);
-
-    @Before("execution(* com.example.currency4..*(..))")
-    public void logBefore(JoinPoint joinPoint) {
-        logger.info("Entering method: {} with arguments: {}", joinPoint.getSignature(), joinPoint.getArgs());
-    }
-
-    @AfterReturning(pointcut = "execution(* com.example.currency4..*(..))", returning = "result")
-    public void logAfterReturning(JoinPoint joinPoint, Object result) {
-        logger.info("Exiting method: {} with result: {}", joinPoint.getSignature(), result);
-    }
-
-    @AfterThrowing(pointcut = "execution(* com.example.currency4..*(..))", throwing = "error")
-    public void logAfterThrowing(JoinPoint joinPoint, Throwable error) {
-        logger.error("Exception in method: {} with cause: {}", joinPoint.getSignature(), error.getMessage());
-    }
-}
\ No newline at end of file
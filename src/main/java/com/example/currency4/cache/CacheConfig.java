@@ -1,18 +1,45 @@
 package com.example.currency4.cache;
 
-import com.example.currency4.entity.ConversionHistory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 @Configuration
+@EnableCaching
 public class CacheConfig {
 
+    private static final String DEFAULT_SPEC = "maximumSize=1000,expireAfterWrite=5m";
+
+    @Bean
+    public HistoryQueryCache conversionHistoryCache(
+            @Value("${currency.history.cache.max-entries:1000}") int maxEntries,
+            @Value("${currency.history.cache.ttl-ms:60000}") long ttlMs) {
+        return new HistoryQueryCache(maxEntries, Duration.ofMillis(ttlMs));
+    }
+
     @Bean
-    public Map<String, List<ConversionHistory>> conversionHistoryCache() {
-        return new HashMap<>();
+    public CacheManager cacheManager(Environment environment,
+                                     @Value("${currency.cache.names}") List<String> cacheNames,
+                                     @Value("${currency.cache.default-spec:" + DEFAULT_SPEC + "}")
+                                     String defaultSpec) {
+        List<CaffeineCache> caches = new ArrayList<>();
+        for (String name : cacheNames) {
+            // Размер и время жизни задаются для каждого кэша отдельно: currency.cache.spec.<имя>
+            String spec = environment.getProperty("currency.cache.spec." + name, defaultSpec);
+            caches.add(new CaffeineCache(name, Caffeine.from(spec).recordStats().build()));
+        }
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package com.example.currency4.cache;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.entity.ConversionHistory;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class HistoryQueryCache {
+
+    public enum Namespace {
+        FROM("from:"), TO("to:");
+
+        private final String prefix;
+
+        Namespace(String prefix) {
+            this.prefix = prefix;
+        }
+
+        String key(String value) {
+            return prefix + value;
+        }
+    }
+
+    // Вытеснение по размеру и времени жизни делает Caffeine, без обхода всех записей. В кэше лежат
+    // будущие результаты: пока выборка загружается, остальные запросы ждут её, а не идут в БД
+    private final AsyncCache<String, List<ConversionHistoryView>> entries;
+    // Выборки по дате сгруппированы по дню: изменение истории сбрасывает только затронутые дни
+    private final Cache<LocalDate, AsyncCache<String, List<ConversionHistoryView>>> dateEntries;
+    // Номер поколения растёт при каждом сбросе; загрузка, во время которой он сменился, в кэше не остаётся
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxEntries;
+    private final Duration ttl;
+
+    public HistoryQueryCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.entries = newGroup();
+        // В дне, к которому не обращались дольше ttl, все выборки уже устарели
+        this.dateEntries = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(ttl).build();
+    }
+
+    public List<ConversionHistoryView> get(Namespace namespace, String value,
+                                           Supplier<List<ConversionHistoryView>> loader) {
+        return lookup(entries, namespace.key(value), loader);
+    }
+
+    // value различает выборки внутри дня: сами сутки или точное время конвертации. Число выборок
+    // одного дня ограничено так же, как и всего кэша
+    public List<ConversionHistoryView> getByDate(LocalDate day, String value,
+                                                 Supplier<List<ConversionHistoryView>> loader) {
+        return lookup(dateEntries.get(day, d -> newGroup()), value, loader);
+    }
+
+    public void invalidate(Collection<ConversionHistory> histories) {
+        Set<String> keys = new HashSet<>();
+        Set<LocalDate> days = new HashSet<>();
+        for (ConversionHistory history : histories) {
+            if (history.getFromCurrency() != null) {
+                keys.add(Namespace.FROM.key(history.getFromCurrency().toUpperCase(Locale.ROOT)));
+            }
+            if (history.getToCurrency() != null) {
+                keys.add(Namespace.TO.key(history.getToCurrency().toUpperCase(Locale.ROOT)));
+            }
+            if (history.getConvertedAt() != null) {
+                days.add(history.getConvertedAt().toLocalDate());
+            }
+        }
+        generation.incrementAndGet();
+        entries.synchronous().invalidateAll(keys);
+        dateEntries.invalidateAll(days);
+    }
+
+    public void invalidateAfterCommit(Collection<ConversionHistory> histories) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(histories);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(histories);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.synchronous().invalidateAll();
+        dateEntries.invalidateAll();
+    }
+
+    public long size() {
+        long size = entries.synchronous().estimatedSize();
+        for (AsyncCache<String, List<ConversionHistoryView>> dayEntries : dateEntries.asMap().values()) {
+            size += dayEntries.synchronous().estimatedSize();
+        }
+        return size;
+    }
+
+    private AsyncCache<String, List<ConversionHistoryView>> newGroup() {
+        return Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttl).buildAsync();
+    }
+
+    // Загружает только тот поток, чей future попал в кэш; остальные ждут его результат, а ошибку
+    // получают все сразу: упавшая загрузка удаляется из кэша и не повторяется каждым ожидающим.
+    // Если за время загрузки прошёл сброс, выборка могла прочитать историю до фиксации записи:
+    // ожидающие её получат, но в кэше она не останется
+    private List<ConversionHistoryView> lookup(AsyncCache<String, List<ConversionHistoryView>> group,
+                                               String key, Supplier<List<ConversionHistoryView>> loader) {
+        CompletableFuture<List<ConversionHistoryView>> created = new CompletableFuture<>();
+        CompletableFuture<List<ConversionHistoryView>> future = group.get(key, (k, executor) -> created);
+        if (future == created) {
+            long loadGeneration = generation.get();
+            try {
+                created.complete(List.copyOf(loader.get()));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            }
+            if (generation.get() != loadGeneration) {
+                group.asMap().remove(key, created);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.currency4.cache;
+
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import com.example.currency4.model.SingleFlightStats;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final long waitTimeoutNanos;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public SingleFlight(String name, Duration waitTimeout) {
+        this.name = name;
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing == null) {
+            return lead(key, created, loader);
+        }
+        coalesced.incrementAndGet();
+        return await(existing);
+    }
+
+    public SingleFlightStats getStats() {
+        return new SingleFlightStats(name, executions.get(), coalesced.get(), timeouts.get(),
+                inFlight.size());
+    }
+
+    // Загрузку выполняет поток, первым вставивший ключ, остальные получают её результат или её исключение
+    private V lead(K key, CompletableFuture<V> future, Supplier<V> loader) {
+        executions.incrementAndGet();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    // Ожидание ограничено для каждого ждущего отдельно; сама загрузка при этом не прерывается
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            throw new ServiceOverloadedException("Timed out waiting for in-flight " + name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while waiting for in-flight " + name);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.currency4.client;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.dto.HistoryCursorPage;
+import com.example.currency4.entity.CurrencyRate;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+// Разбор ответов, полученных с Accept: application/cbor. Ссылки на строки (stringref) и даты-массивы
+// CBORMapper читает без дополнительных настроек. Формат описан в docs/binary-encoding.md
+public class CborResponseDecoder {
+
+    public static final String MEDIA_TYPE = "application/cbor";
+
+    private static final TypeReference<List<ConversionHistoryView>> HISTORY = new TypeReference<>() {
+    };
+    private static final TypeReference<List<CurrencyRate>> RATES = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public CborResponseDecoder() {
+        // Новые поля в ответах сервера не ломают старых клиентов
+        this.objectMapper = CBORMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+
+    // /api/history, /api/to-history, /api/history/range, /api/history/user/{userId} и другие списки
+    public List<ConversionHistoryView> readHistory(InputStream body) throws IOException {
+        return objectMapper.readValue(body, HISTORY);
+    }
+
+    public List<ConversionHistoryView> readHistory(byte[] body) throws IOException {
+        return objectMapper.readValue(body, HISTORY);
+    }
+
+    // /api/history/cursor
+    public HistoryCursorPage readCursorPage(InputStream body) throws IOException {
+        return objectMapper.readValue(body, HistoryCursorPage.class);
+    }
+
+    // /api/history/paged: из Page читаются только содержимое и счётчики
+    public HistoryPage readPage(InputStream body) throws IOException {
+        return objectMapper.readValue(body, HistoryPage.class);
+    }
+
+    // /api/currency-rates
+    public List<CurrencyRate> readRates(InputStream body) throws IOException {
+        return objectMapper.readValue(body, RATES);
+    }
+
+    public List<CurrencyRate> readRates(byte[] body) throws IOException {
+        return objectMapper.readValue(body, RATES);
+    }
+
+    public record HistoryPage(List<ConversionHistoryView> content, int number, int size, long totalElements,
+                              int totalPages) {
+    }
+}
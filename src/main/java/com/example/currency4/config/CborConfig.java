@@ -0,0 +1,34 @@
+package com.example.currency4.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactoryBuilder;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// Accept: application/cbor на любом контроллере. Бин заменяет конвертер CBOR, который Spring MVC
+// добавляет сам: тот собирается без настроек spring.jackson.* и без ссылок на повторяющиеся строки
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder builder,
+            @Value("${currency.cbor.string-refs:true}") boolean stringRefs) {
+        CBORFactoryBuilder factory = CBORFactory.builder();
+        if (stringRefs) {
+            // Имена полей, коды валют и статусы пишутся один раз, дальше — номером ссылки
+            factory.enable(CBORGenerator.Feature.STRINGREF);
+        }
+        // Даты — массивом чисел JavaTimeModule вместо ISO-строки
+        ObjectMapper objectMapper = builder.factory(factory.build())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        return new MappingJackson2CborHttpMessageConverter(objectMapper);
+    }
+}
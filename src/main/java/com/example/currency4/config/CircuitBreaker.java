@@ -0,0 +1,118 @@
+package com.example.currency4.config;
+
+import com.example.currency4.exceptions.CircuitOpenException;
+import com.example.currency4.model.CircuitBreakerStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    // Переходы состояний короткие и без ввода-вывода, поэтому достаточно монитора
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, System::nanoTime);
+    }
+
+    // Источник времени подменяется в тестах, чтобы не ждать окончания паузы
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException(
+                    "Circuit breaker " + name + " needs a positive failure threshold");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public <T> T call(Supplier<T> action) {
+        if (!tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new CircuitOpenException("Circuit breaker " + name + " is open");
+        }
+        // Пробный вызов освобождается при любом исходе, в том числе при Error
+        boolean succeeded = false;
+        try {
+            T result = action.get();
+            succeeded = true;
+            onSuccess();
+            return result;
+        } finally {
+            if (!succeeded) {
+                onFailure();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized CircuitBreakerStats getStats() {
+        return new CircuitBreakerStats(name, state.name(), consecutiveFailures, opened.get(), rejected.get());
+    }
+
+    // После паузы пропускается один пробный вызов; остальные отклоняются, пока он не завершится
+    private synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        if (trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuit breaker {} closed", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                opened.incrementAndGet();
+                logger.warn("Circuit breaker {} opened after {} consecutive failures", name,
+                        consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.currency4.config;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    @Bean
+    public ConcurrencyLimiter jdbcConcurrencyLimiter(
+            @Value("${currency.concurrency.jdbc.permits:${spring.datasource.hikari.maximum-pool-size:10}}")
+            int permits,
+            @Value("${currency.concurrency.jdbc.acquire-timeout-ms:30000}") long acquireTimeoutMs) {
+        return new ConcurrencyLimiter("jdbc", permits, acquireTimeoutMs);
+    }
+
+    @Bean
+    public ConcurrencyLimiter upstreamConcurrencyLimiter(
+            @Value("${currency.concurrency.upstream.permits:4}") int permits,
+            @Value("${currency.concurrency.upstream.acquire-timeout-ms:10000}") long acquireTimeoutMs) {
+        return new ConcurrencyLimiter("upstream", permits, acquireTimeoutMs);
+    }
+
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(
+            @Value("${open.exchange.api.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${open.exchange.api.circuit.open-duration-ms:60000}") long openDurationMs) {
+        return new CircuitBreaker("open-exchange-rates", failureThreshold, Duration.ofMillis(openDurationMs));
+    }
+
+    // Потоков больше не ограничивает пул Tomcat, поэтому число одновременных обращений к пулу
+    // соединений ограничивается семафором до того, как запрос встанет в очередь Hikari
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(BeanFactory beanFactory) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BoundedDataSource)) {
+                    return new BoundedDataSource(dataSource,
+                            beanFactory.getBean("jdbcConcurrencyLimiter", ConcurrencyLimiter.class));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.currency4.config;
+
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import com.example.currency4.model.LimiterStats;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final int permits;
+    private final long acquireTimeoutMs;
+    // Честная очередь: при виртуальных потоках ожидающих может быть тысячи, порядок важен для p99
+    private final Semaphore semaphore;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConcurrencyLimiter(String name, int permits, long acquireTimeoutMs) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Limiter " + name + " needs at least one permit");
+        }
+        this.name = name;
+        this.permits = permits;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    public void acquire() {
+        try {
+            if (semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        throw new ServiceOverloadedException("Too many concurrent " + name + " calls, try again later");
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            release();
+        }
+    }
+
+    public LimiterStats getStats() {
+        return new LimiterStats(name, permits, semaphore.availablePermits(), semaphore.getQueueLength(),
+                rejected.get());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.currency4.controller;
+
+import com.example.currency4.dto.RollupBucket;
+import com.example.currency4.dto.RollupTotal;
+import com.example.currency4.model.RollupDimension;
+import com.example.currency4.model.RollupGranularity;
+import com.example.currency4.service.ConversionRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final ConversionRollupService conversionRollupService;
+
+    public AnalyticsController(ConversionRollupService conversionRollupService) {
+        this.conversionRollupService = conversionRollupService;
+    }
+
+    @GetMapping("/pairs/{fromCurrency}/{toCurrency}")
+    public List<RollupBucket> getPairVolume(
+            @PathVariable String fromCurrency,
+            @PathVariable String toCurrency,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return conversionRollupService.getPairBuckets(fromCurrency, toCurrency,
+                RollupGranularity.parse(granularity), start, end);
+    }
+
+    @GetMapping("/users/{userId}")
+    public List<RollupBucket> getUserVolume(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return conversionRollupService.getUserBuckets(userId, RollupGranularity.parse(granularity), start,
+                end);
+    }
+
+    // Итоги по каждой паре (/pairs) или пользователю (/users) за период
+    @GetMapping("/{dimension}")
+    public List<RollupTotal> getTotals(
+            @PathVariable String dimension,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return conversionRollupService.getTotals(RollupDimension.parse(dimension),
+                RollupGranularity.parse(granularity), start, end);
+    }
+
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int buckets = conversionRollupService.rebuild(from, to);
+        return Map.of("buckets", buckets);
+    }
+}
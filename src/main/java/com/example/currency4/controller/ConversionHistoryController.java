@@ -1,12 +1,19 @@
 package com.example.currency4.controller;
 
+import com.example.currency4.dto.ConversionHistoryView;
 import com.example.currency4.entity.ConversionHistory;
 import com.example.currency4.service.ConversionHistoryService;
+import com.example.currency4.service.HistoryExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/conversion-histories")
@@ -15,27 +22,49 @@ public class ConversionHistoryController {
     @Autowired
     private ConversionHistoryService conversionHistoryService;
 
+    @Autowired
+    private HistoryExportService historyExportService;
+
     @GetMapping
-    public List<ConversionHistory> getAllConversionHistories() {
+    public List<ConversionHistoryView> getAllConversionHistories() {
         return conversionHistoryService.getAllConversionHistories();
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportConversionHistories(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        HistoryExportService.Format exportFormat = HistoryExportService.Format.parse(format);
+        MediaType contentType = exportFormat == HistoryExportService.Format.CSV
+                ? new MediaType("text", "csv")
+                : new MediaType("application", "x-ndjson");
+        StreamingResponseBody body = out -> historyExportService.export(exportFormat, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header("Content-Disposition", "attachment; filename=conversion-history."
+                        + exportFormat.name().toLowerCase(Locale.ROOT))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ConversionHistory> getConversionHistoryById(@PathVariable Long id) {
+    public ResponseEntity<ConversionHistoryView> getConversionHistoryById(@PathVariable Long id) {
         return conversionHistoryService.getConversionHistoryById(id)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PostMapping
-    public ConversionHistory createConversionHistory(@RequestBody ConversionHistory conversionHistory) {
+    public ConversionHistoryView createConversionHistory(@RequestBody ConversionHistory conversionHistory) {
         return conversionHistoryService.createConversionHistory(conversionHistory);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<ConversionHistory> updateConversionHistory(@PathVariable Long id, @RequestBody ConversionHistory conversionHistoryDetails) {
+    public ResponseEntity<ConversionHistoryView> updateConversionHistory(@PathVariable Long id, @RequestBody ConversionHistory conversionHistoryDetails) {
         try {
-            ConversionHistory updatedHistory = conversionHistoryService.updateConversionHistory(id, conversionHistoryDetails);
+            ConversionHistoryView updatedHistory = conversionHistoryService.updateConversionHistory(id, conversionHistoryDetails);
             return ResponseEntity.ok(updatedHistory);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
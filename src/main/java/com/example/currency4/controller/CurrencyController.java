@@ -1,29 +1,41 @@
 package com.example.currency4.controller;
 
-import com.example.currency4.cache.CacheConfig;
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.dto.BatchConvertResult;
+import com.example.currency4.dto.ConversionHistoryView;
 import com.example.currency4.dto.ConvertRequest;
+import com.example.currency4.dto.ConvertResponse;
+import com.example.currency4.dto.HistoryCursor;
+import com.example.currency4.dto.HistoryCursorPage;
 import com.example.currency4.entity.ConversionHistory;
-import com.example.currency4.entity.CurrencyRate;
 import com.example.currency4.entity.User;
-import com.example.currency4.model.CurrencyResponse;
-import com.example.currency4.repository.ConversionHistoryRepository;
-import com.example.currency4.repository.CurrencyRateRepository;
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.model.RateTable;
+import com.example.currency4.repository.ConversionHistoryViewRepository;
 import com.example.currency4.repository.UserRepository;
+import com.example.currency4.service.BatchConversionService;
+import com.example.currency4.service.ConversionHistoryWriter;
 import com.example.currency4.service.CurrencyService;
+import com.example.currency4.service.RateHistoryStore;
+import com.example.currency4.service.RateSnapshotService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -31,129 +43,264 @@ import java.util.Optional;
 @RequestMapping("/api")
 public class CurrencyController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int MAX_RANGE_RESULTS = 10000;
+    private static final int ISO_DATE_LENGTH = 10;
+
     private final CurrencyService currencyService;
-    private final ConversionHistoryRepository conversionHistoryRepository;
-    private final CurrencyRateRepository currencyRateRepository;
+    private final RateSnapshotService rateSnapshotService;
+    private final RateHistoryStore rateHistoryStore;
+    private final BatchConversionService batchConversionService;
+    private final ConversionHistoryWriter conversionHistoryWriter;
+    private final ConversionHistoryViewRepository conversionHistoryViewRepository;
     private final UserRepository userRepository;
-    private final Map<String, List<ConversionHistory>> cache;
+    private final HistoryQueryCache cache;
 
-    public CurrencyController(CurrencyService currencyService, ConversionHistoryRepository conversionHistoryRepository,
-                              CurrencyRateRepository currencyRateRepository, UserRepository userRepository,
-                              Map<String, List<ConversionHistory>> cache) {
+    public CurrencyController(CurrencyService currencyService, RateSnapshotService rateSnapshotService,
+                              RateHistoryStore rateHistoryStore,
+                              BatchConversionService batchConversionService,
+                              ConversionHistoryWriter conversionHistoryWriter,
+                              ConversionHistoryViewRepository conversionHistoryViewRepository,
+                              UserRepository userRepository, HistoryQueryCache cache) {
         this.currencyService = currencyService;
-        this.conversionHistoryRepository = conversionHistoryRepository;
-        this.currencyRateRepository = currencyRateRepository;
+        this.rateSnapshotService = rateSnapshotService;
+        this.rateHistoryStore = rateHistoryStore;
+        this.batchConversionService = batchConversionService;
+        this.conversionHistoryWriter = conversionHistoryWriter;
+        this.conversionHistoryViewRepository = conversionHistoryViewRepository;
         this.userRepository = userRepository;
         this.cache = cache;
     }
 
     @PostMapping("/convert")
-    @Transactional
-    public ResponseEntity<Map<String, Object>> convert(@Valid @RequestBody ConvertRequest request) {
-        CurrencyResponse rates = currencyService.fetchExchangeRates();
-        double convertedAmount = currencyService.convertAmount(request.getFrom(), request.getTo(), request.getAmount(), rates);
+    public ResponseEntity<ConvertResponse> convert(
+            @Valid @RequestBody ConvertRequest request,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        if (asOf != null) {
+            return ResponseEntity.ok(convertAsOf(request, asOf));
+        }
+        RateSnapshot snapshot = rateSnapshotService.getSnapshot();
+        RateTable rates = snapshot.getTable();
+        int fromIndex = rates.indexOf(request.getFrom());
+        int toIndex = rates.indexOf(request.getTo());
+        double convertedAmount = currencyService.convertAmount(fromIndex, toIndex, request.getAmount(),
+                rates);
+        String from = rates.codeOf(fromIndex, request.getFrom());
+        String to = rates.codeOf(toIndex, request.getTo());
 
         User user = userRepository.findById(1L).orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         ConversionHistory conversionHistory = new ConversionHistory(
-                request.getFrom().toUpperCase(),
-                request.getTo().toUpperCase(),
+                from,
+                to,
                 request.getAmount(),
                 convertedAmount,
                 user
         );
         conversionHistory.setNotes("Automated conversion");
         conversionHistory.setStatus("COMPLETED");
+        conversionHistory.setRateSnapshotId(snapshot.getVersion());
+        conversionHistory.setFromRate(rates.rateAt(fromIndex));
+        conversionHistory.setToRate(rates.rateAt(toIndex));
+
+        conversionHistoryWriter.write(conversionHistory);
+
+        return ResponseEntity.ok(ConvertResponse.ofSnapshot(from, to, convertedAmount,
+                snapshot.getVersion()));
+    }
 
-        Optional<CurrencyRate> fromCurrencyRate = currencyRateRepository.findById(request.getFrom().toUpperCase());
-        Optional<CurrencyRate> toCurrencyRate = currencyRateRepository.findById(request.getTo().toUpperCase());
+    // Пересчёт по курсам прошлого момента в историю конвертаций не записывается
+    private ConvertResponse convertAsOf(ConvertRequest request, LocalDateTime asOf) {
+        String from = request.getFrom().toUpperCase(Locale.ROOT);
+        String to = request.getTo().toUpperCase(Locale.ROOT);
+        Instant instant = asOf.atZone(ZoneId.systemDefault()).toInstant();
+        double fromRate = rateHistoryStore.rateAsOf(from, instant);
+        double toRate = rateHistoryStore.rateAsOf(to, instant);
+        if (Double.isNaN(fromRate) || Double.isNaN(toRate)) {
+            throw new IllegalArgumentException("No rate history for " + (Double.isNaN(fromRate) ? from : to)
+                    + " as of " + asOf);
+        }
+        return ConvertResponse.ofHistory(from, to, (request.getAmount() / fromRate) * toRate, fromRate,
+                toRate, asOf);
+    }
 
-        fromCurrencyRate.ifPresent(conversionHistory.getCurrencyRates()::add);
-        toCurrencyRate.ifPresent(conversionHistory.getCurrencyRates()::add);
+    @PostMapping("/convert/batch")
+    public ResponseEntity<List<BatchConvertResult>> convertBatch(@RequestBody List<ConvertRequest> requests) {
+        return ResponseEntity.ok(batchConversionService.convertAll(requests));
+    }
+
+    @GetMapping("/convert/all")
+    public ResponseEntity<Map<String, Object>> convertToAll(@RequestParam String from,
+                                                            @RequestParam double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        RateSnapshot snapshot = rateSnapshotService.getSnapshot();
+        RateTable rates = snapshot.getTable();
+        int fromIndex = rates.indexOf(from);
+        double[] converted = currencyService.convertToAll(fromIndex, amount, rates);
 
-        conversionHistoryRepository.save(conversionHistory);
+        Map<String, Double> amounts = LinkedHashMap.newLinkedHashMap(rates.size());
+        for (int i = 0; i < converted.length; i++) {
+            amounts.put(rates.codeAt(i), converted[i]);
+        }
 
         Map<String, Object> result = new HashMap<>();
-        result.put("fromCurrency", request.getFrom().toUpperCase());
-        result.put("toCurrency", request.getTo().toUpperCase());
-        result.put("convertedAmount", convertedAmount);
+        result.put("fromCurrency", rates.codeOf(fromIndex, from));
+        result.put("amount", amount);
+        result.put("snapshotVersion", snapshot.getVersion());
+        result.put("convertedAmounts", amounts);
+        return ResponseEntity.ok(result);
+    }
 
+    @GetMapping("/rates/snapshot")
+    public ResponseEntity<Map<String, Object>> getRateSnapshotInfo() {
+        RateSnapshot snapshot = rateSnapshotService.getSnapshot();
+        Map<String, Object> result = new HashMap<>();
+        result.put("version", snapshot.getVersion());
+        result.put("fetchedAt", snapshot.getFetchedAt().toString());
+        result.put("ageSeconds", snapshot.getAge().toSeconds());
+        result.put("stale", rateSnapshotService.isStale(snapshot));
+        result.put("base", snapshot.getBase());
+        result.put("currencies", snapshot.getTable().size());
         return ResponseEntity.ok(result);
     }
 
-    @GetMapping("/history")
-    public ResponseEntity<List<ConversionHistory>> getConversionHistoryByCurrency(
-            @RequestParam String currency) {
-        String cacheKey = currency.toUpperCase();
-        if (cache.containsKey(cacheKey)) {
-            return ResponseEntity.ok(cache.get(cacheKey));
+    @GetMapping("/rates/snapshots/{version}")
+    public ResponseEntity<Map<String, Object>> getRateSnapshot(@PathVariable long version) {
+        Optional<RateSnapshot> found = rateSnapshotService.findSnapshot(version);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        RateSnapshot snapshot = found.get();
+        RateTable table = snapshot.getTable();
+        Map<String, Double> rates = LinkedHashMap.newLinkedHashMap(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            rates.put(table.codeAt(i), table.rateAt(i));
         }
 
-        List<ConversionHistory> history = conversionHistoryRepository.findByFromCurrency(cacheKey);
-        cache.put(cacheKey, history);
+        Map<String, Object> result = new HashMap<>();
+        result.put("version", snapshot.getVersion());
+        result.put("fetchedAt", snapshot.getFetchedAt().toString());
+        result.put("base", snapshot.getBase());
+        result.put("rates", rates);
+        return ResponseEntity.ok(result);
+    }
 
+    @GetMapping("/history")
+    public ResponseEntity<List<ConversionHistoryView>> getConversionHistoryByCurrency(
+            @RequestParam String currency) {
+        String cacheKey = currency.toUpperCase(Locale.ROOT);
+        List<ConversionHistoryView> history = cache.get(HistoryQueryCache.Namespace.FROM, cacheKey,
+                () -> conversionHistoryViewRepository.findByFromCurrency(cacheKey));
         return ResponseEntity.ok(history);
     }
 
     @GetMapping("/to-history")
-    public ResponseEntity<List<ConversionHistory>> getConversionToHistoryByCurrency(
+    public ResponseEntity<List<ConversionHistoryView>> getConversionToHistoryByCurrency(
             @RequestParam String currency) {
-        String cacheKey = currency.toUpperCase();
-        if (cache.containsKey(cacheKey)) {
-            return ResponseEntity.ok(cache.get(cacheKey));
-        }
-
-        List<ConversionHistory> history = conversionHistoryRepository.findByToCurrency(cacheKey);
-        cache.put(cacheKey, history);
-
+        String cacheKey = currency.toUpperCase(Locale.ROOT);
+        List<ConversionHistoryView> history = cache.get(HistoryQueryCache.Namespace.TO, cacheKey,
+                () -> conversionHistoryViewRepository.findByToCurrency(cacheKey));
         return ResponseEntity.ok(history);
     }
 
     @GetMapping("/history-by-date")
-    public ResponseEntity<List<ConversionHistory>> getConversionHistoryByDate(
+    public ResponseEntity<List<ConversionHistoryView>> getConversionHistoryByDate(
             @RequestParam String date) {
         try {
-            LocalDateTime parsedDate = LocalDateTime.parse(date); // Ожидает формат "2025-05-11T10:00:00"
-            String cacheKey = "date_" + parsedDate.toString();
-            if (cache.containsKey(cacheKey)) {
-                return ResponseEntity.ok(cache.get(cacheKey));
+            if (date.length() == ISO_DATE_LENGTH) {
+                // Только дата ("2025-05-11"): вся история за сутки по индексу converted_at
+                LocalDateTime dayStart = LocalDate.parse(date).atStartOfDay();
+                List<ConversionHistoryView> history = cache.getByDate(dayStart.toLocalDate(), date,
+                        () -> conversionHistoryViewRepository.findInRange(dayStart, dayStart.plusDays(1),
+                                null, null, null, MAX_RANGE_RESULTS));
+                return ResponseEntity.ok(history);
             }
-
-            List<ConversionHistory> history = conversionHistoryRepository.findByDate(parsedDate);
-            cache.put(cacheKey, history);
-
+            LocalDateTime parsedDate = LocalDateTime.parse(date); // Ожидает формат "2025-05-11T10:00:00"
+            List<ConversionHistoryView> history = cache.getByDate(parsedDate.toLocalDate(),
+                    parsedDate.toString(),
+                    () -> conversionHistoryViewRepository.findByConvertedAt(parsedDate));
             return ResponseEntity.ok(history);
         } catch (DateTimeParseException e) {
             throw new IllegalArgumentException("Invalid date format. Use ISO format (e.g., 2025-05-11T10:00:00)", e);
         }
     }
 
+    @GetMapping("/history/range")
+    public ResponseEntity<List<ConversionHistoryView>> getConversionHistoryInRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String fromCurrency,
+            @RequestParam(required = false) String toCurrency,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (limit < 1 || limit > MAX_RANGE_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RANGE_RESULTS);
+        }
+        List<ConversionHistoryView> history = conversionHistoryViewRepository.findInRange(from, to,
+                fromCurrency != null ? fromCurrency.toUpperCase(Locale.ROOT) : null,
+                toCurrency != null ? toCurrency.toUpperCase(Locale.ROOT) : null,
+                userId, limit);
+        return ResponseEntity.ok(history);
+    }
+
     @GetMapping("/history/{id}")
-    public ResponseEntity<ConversionHistory> getConversionHistoryById(@PathVariable Long id) {
-        Optional<ConversionHistory> history = conversionHistoryRepository.findById(id);
+    public ResponseEntity<ConversionHistoryView> getConversionHistoryById(@PathVariable Long id) {
+        Optional<ConversionHistoryView> history = conversionHistoryViewRepository.findById(id);
         return history.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
     @GetMapping("/history/user/{userId}")
-    public ResponseEntity<List<ConversionHistory>> getConversionHistoryByUserId(@PathVariable Long userId) {
-        List<ConversionHistory> history = conversionHistoryRepository.findByUserIdNative(userId);
+    public ResponseEntity<List<ConversionHistoryView>> getConversionHistoryByUserId(
+            @PathVariable Long userId) {
+        List<ConversionHistoryView> history = conversionHistoryViewRepository.findByUserId(userId);
         return ResponseEntity.ok(history);
     }
 
     @GetMapping("/history/sorted")
-    public ResponseEntity<List<ConversionHistory>> getSortedConversionHistory() {
-        List<ConversionHistory> history = conversionHistoryRepository.findAll();
-        Collections.sort(history, (h1, h2) -> h1.getConvertedAt().compareTo(h2.getConvertedAt()));
+    public ResponseEntity<List<ConversionHistoryView>> getSortedConversionHistory() {
+        List<ConversionHistoryView> history = conversionHistoryViewRepository.findAll();
         return ResponseEntity.ok(history);
     }
 
+    @GetMapping("/history/cursor")
+    public ResponseEntity<HistoryCursorPage> getConversionHistoryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        // Берём на одну строку больше, чтобы узнать, есть ли следующая страница, без count(*)
+        List<ConversionHistoryView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = conversionHistoryViewRepository.findFirstPage(size + 1);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = conversionHistoryViewRepository.findPageAfter(after.getConvertedAt(), after.getId(),
+                    size + 1);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            ConversionHistoryView last = rows.get(size - 1);
+            nextCursor = new HistoryCursor(last.convertedAt(), last.id()).encode();
+        }
+        return ResponseEntity.ok(new HistoryCursorPage(rows, nextCursor));
+    }
+
     @GetMapping("/history/paged")
-    public ResponseEntity<Page<ConversionHistory>> getPagedConversionHistory(
+    public ResponseEntity<Page<ConversionHistoryView>> getPagedConversionHistory(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<ConversionHistory> historyPage = conversionHistoryRepository.findAll(pageable);
+        Page<ConversionHistoryView> historyPage = conversionHistoryViewRepository.findPage(pageable);
         return ResponseEntity.ok(historyPage);
     }
 }
\ No newline at end of file
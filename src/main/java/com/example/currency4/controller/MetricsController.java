@@ -0,0 +1,123 @@
+package com.example.currency4.controller;
+
+import com.example.currency4.aspect.LatencyRegistry;
+import com.example.currency4.config.ConcurrencyLimiter;
+import com.example.currency4.model.CacheStatistics;
+import com.example.currency4.model.CircuitBreakerStats;
+import com.example.currency4.model.JournalStats;
+import com.example.currency4.model.LatencyStats;
+import com.example.currency4.model.RateHistoryStats;
+import com.example.currency4.model.SingleFlightStats;
+import com.example.currency4.service.CurrencyService;
+import com.example.currency4.model.WarmStartStats;
+import com.example.currency4.model.WriteBehindStats;
+import com.example.currency4.service.JournalConversionHistoryWriter;
+import com.example.currency4.service.RateHistoryStore;
+import com.example.currency4.service.RateSnapshotService;
+import com.example.currency4.service.WriteBehindConversionHistoryWriter;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final Optional<WriteBehindConversionHistoryWriter> writeBehindWriter;
+    private final Optional<JournalConversionHistoryWriter> journalWriter;
+    private final CacheManager cacheManager;
+    private final RateHistoryStore rateHistoryStore;
+    private final List<ConcurrencyLimiter> limiters;
+    private final CurrencyService currencyService;
+    private final RateSnapshotService rateSnapshotService;
+    private final LatencyRegistry latencyRegistry;
+
+    public MetricsController(Optional<WriteBehindConversionHistoryWriter> writeBehindWriter,
+                             Optional<JournalConversionHistoryWriter> journalWriter,
+                             CacheManager cacheManager, RateHistoryStore rateHistoryStore,
+                             List<ConcurrencyLimiter> limiters, CurrencyService currencyService,
+                             RateSnapshotService rateSnapshotService, LatencyRegistry latencyRegistry) {
+        this.writeBehindWriter = writeBehindWriter;
+        this.journalWriter = journalWriter;
+        this.cacheManager = cacheManager;
+        this.rateHistoryStore = rateHistoryStore;
+        this.limiters = limiters;
+        this.currencyService = currencyService;
+        this.rateSnapshotService = rateSnapshotService;
+        this.latencyRegistry = latencyRegistry;
+    }
+
+    @GetMapping("/caches")
+    public List<CacheStatistics> getCacheStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache caffeineCache) {
+                CacheStats stats = caffeineCache.getNativeCache().stats();
+                long size = caffeineCache.getNativeCache().estimatedSize();
+                statistics.add(new CacheStatistics(name, size, stats.hitCount(),
+                        stats.missCount(), stats.hitRate(), stats.evictionCount(), stats.loadCount()));
+            }
+        }
+        return statistics;
+    }
+
+    @GetMapping("/write-behind")
+    public ResponseEntity<WriteBehindStats> getWriteBehindStats() {
+        return writeBehindWriter.map(writer -> ResponseEntity.ok(writer.getStats()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/journal")
+    public ResponseEntity<JournalStats> getJournalStats() {
+        return journalWriter.map(writer -> ResponseEntity.ok(writer.getStats()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/concurrency")
+    public Map<String, Object> getConcurrencyStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("virtualThreads", Thread.currentThread().isVirtual());
+        result.put("limiters", limiters.stream().map(ConcurrencyLimiter::getStats).toList());
+        return result;
+    }
+
+    @GetMapping("/single-flight")
+    public List<SingleFlightStats> getSingleFlightStats() {
+        return List.of(currencyService.getFetchStats(), rateSnapshotService.getRefreshStats());
+    }
+
+    @GetMapping("/latency")
+    public List<LatencyStats> getLatencyStats(@RequestParam(required = false) String layer) {
+        List<LatencyStats> stats = latencyRegistry.getStats();
+        if (layer == null) {
+            return stats;
+        }
+        return stats.stream().filter(s -> s.getLayer().equalsIgnoreCase(layer)).toList();
+    }
+
+    @GetMapping("/warm-start")
+    public WarmStartStats getWarmStartStats() {
+        return rateSnapshotService.getWarmStartStats();
+    }
+
+    @GetMapping("/upstream")
+    public CircuitBreakerStats getUpstreamStats() {
+        return currencyService.getCircuitBreakerStats();
+    }
+
+    @GetMapping("/rate-history")
+    public RateHistoryStats getRateHistoryStats() {
+        return rateHistoryStore.getStats();
+    }
+}
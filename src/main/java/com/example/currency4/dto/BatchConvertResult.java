@@ -0,0 +1,65 @@
+package com.example.currency4.dto;
+
+public class BatchConvertResult {
+
+    private final int index;
+    private final String fromCurrency;
+    private final String toCurrency;
+    private final double amount;
+    private final Double convertedAmount;
+    private final String status;
+    private final String error;
+
+    private BatchConvertResult(int index, String fromCurrency, String toCurrency, double amount,
+                               Double convertedAmount, String status, String error) {
+        this.index = index;
+        this.fromCurrency = fromCurrency;
+        this.toCurrency = toCurrency;
+        this.amount = amount;
+        this.convertedAmount = convertedAmount;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BatchConvertResult completed(int index, String fromCurrency, String toCurrency,
+                                               double amount, double convertedAmount) {
+        return new BatchConvertResult(index, fromCurrency, toCurrency, amount, convertedAmount,
+                "COMPLETED", null);
+    }
+
+    public static BatchConvertResult failed(int index, ConvertRequest request, String error) {
+        return new BatchConvertResult(index,
+                request != null ? request.getFrom() : null,
+                request != null ? request.getTo() : null,
+                request != null ? request.getAmount() : 0,
+                null, "FAILED", error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getFromCurrency() {
+        return fromCurrency;
+    }
+
+    public String getToCurrency() {
+        return toCurrency;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public Double getConvertedAmount() {
+        return convertedAmount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
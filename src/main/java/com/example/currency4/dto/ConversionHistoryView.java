@@ -0,0 +1,12 @@
+package com.example.currency4.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.LocalDateTime;
+
+@JsonSerialize(using = ConversionHistoryViewSerializer.class)
+public record ConversionHistoryView(Long id, String fromCurrency, String toCurrency, double amount,
+                                    double convertedAmount, LocalDateTime convertedAt, String notes,
+                                    String status, Long userId, String username, Long rateSnapshotId,
+                                    Double fromRate, Double toRate) {
+}
@@ -0,0 +1,142 @@
+package com.example.currency4.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Пишет поля прямо в генератор в порядке компонентов записи: без обхода свойств через рефлексию
+// и с заранее закодированными именами. Формат совпадает с прежним: null-поля пишутся как null,
+// convertedAt — ISO-строка или, при включённом WRITE_DATES_AS_TIMESTAMPS (CBOR), массив JavaTimeModule
+public class ConversionHistoryViewSerializer extends StdSerializer<ConversionHistoryView> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString FROM_CURRENCY = new SerializedString("fromCurrency");
+    private static final SerializedString TO_CURRENCY = new SerializedString("toCurrency");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString CONVERTED_AMOUNT = new SerializedString("convertedAmount");
+    private static final SerializedString CONVERTED_AT = new SerializedString("convertedAt");
+    private static final SerializedString NOTES = new SerializedString("notes");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString RATE_SNAPSHOT_ID = new SerializedString("rateSnapshotId");
+    private static final SerializedString FROM_RATE = new SerializedString("fromRate");
+    private static final SerializedString TO_RATE = new SerializedString("toRate");
+
+    private static final int MAX_FOUR_DIGIT_YEAR = 9999;
+    // "yyyy-MM-ddTHH:mm:ss.nnnnnnnnn"
+    private static final int MAX_DATE_TIME_LENGTH = 29;
+    private static final int NANO_DIGITS = 9;
+    private static final int YEAR_DIGITS = 4;
+    private static final int FIELD_DIGITS = 2;
+    private static final int RADIX = 10;
+
+    public ConversionHistoryViewSerializer() {
+        super(ConversionHistoryView.class);
+    }
+
+    @Override
+    public void serialize(ConversionHistoryView value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject(value);
+        generator.writeFieldName(ID);
+        writeNumber(generator, value.id());
+        generator.writeFieldName(FROM_CURRENCY);
+        generator.writeString(value.fromCurrency());
+        generator.writeFieldName(TO_CURRENCY);
+        generator.writeString(value.toCurrency());
+        generator.writeFieldName(AMOUNT);
+        generator.writeNumber(value.amount());
+        generator.writeFieldName(CONVERTED_AMOUNT);
+        generator.writeNumber(value.convertedAmount());
+        generator.writeFieldName(CONVERTED_AT);
+        LocalDateTime convertedAt = value.convertedAt();
+        if (convertedAt != null && provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(convertedAt, generator);
+        } else {
+            writeDateTime(generator, convertedAt);
+        }
+        generator.writeFieldName(NOTES);
+        generator.writeString(value.notes());
+        generator.writeFieldName(STATUS);
+        generator.writeString(value.status());
+        generator.writeFieldName(USER_ID);
+        writeNumber(generator, value.userId());
+        generator.writeFieldName(USERNAME);
+        generator.writeString(value.username());
+        generator.writeFieldName(RATE_SNAPSHOT_ID);
+        writeNumber(generator, value.rateSnapshotId());
+        generator.writeFieldName(FROM_RATE);
+        writeNumber(generator, value.fromRate());
+        generator.writeFieldName(TO_RATE);
+        writeNumber(generator, value.toRate());
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator generator, Long value) throws IOException {
+        if (value != null) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, Double value) throws IOException {
+        if (value != null) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    // То же, что ISO_LOCAL_DATE_TIME, но без промежуточных StringBuilder и String на каждую строку
+    private static void writeDateTime(JsonGenerator generator, LocalDateTime value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        if (value.getYear() < 0 || value.getYear() > MAX_FOUR_DIGIT_YEAR) {
+            generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+        char[] buffer = new char[MAX_DATE_TIME_LENGTH];
+        int length = 0;
+        length = digits(buffer, length, value.getYear(), YEAR_DIGITS);
+        buffer[length++] = '-';
+        length = digits(buffer, length, value.getMonthValue(), FIELD_DIGITS);
+        buffer[length++] = '-';
+        length = digits(buffer, length, value.getDayOfMonth(), FIELD_DIGITS);
+        buffer[length++] = 'T';
+        length = digits(buffer, length, value.getHour(), FIELD_DIGITS);
+        buffer[length++] = ':';
+        length = digits(buffer, length, value.getMinute(), FIELD_DIGITS);
+        buffer[length++] = ':';
+        length = digits(buffer, length, value.getSecond(), FIELD_DIGITS);
+        int nano = value.getNano();
+        if (nano > 0) {
+            // Доля секунды без хвостовых нулей, как у форматтера: .12, а не .120000000
+            int fractionDigits = NANO_DIGITS;
+            while (nano % RADIX == 0) {
+                nano /= RADIX;
+                fractionDigits--;
+            }
+            buffer[length++] = '.';
+            length = digits(buffer, length, nano, fractionDigits);
+        }
+        generator.writeString(buffer, 0, length);
+    }
+
+    private static int digits(char[] buffer, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % RADIX);
+            value /= RADIX;
+        }
+        return offset + width;
+    }
+}
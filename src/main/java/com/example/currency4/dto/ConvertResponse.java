@@ -0,0 +1,23 @@
+package com.example.currency4.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.LocalDateTime;
+
+// snapshotVersion есть только у конвертации по текущему снимку, fromRate/toRate/asOf — только
+// у пересчёта на прошлый момент; отсутствующие поля в ответ не пишутся
+@JsonSerialize(using = ConvertResponseSerializer.class)
+public record ConvertResponse(String fromCurrency, String toCurrency, double convertedAmount,
+                              Long snapshotVersion, Double fromRate, Double toRate, LocalDateTime asOf) {
+
+    public static ConvertResponse ofSnapshot(String fromCurrency, String toCurrency, double convertedAmount,
+                                             long snapshotVersion) {
+        return new ConvertResponse(fromCurrency, toCurrency, convertedAmount, snapshotVersion, null, null,
+                null);
+    }
+
+    public static ConvertResponse ofHistory(String fromCurrency, String toCurrency, double convertedAmount,
+                                            double fromRate, double toRate, LocalDateTime asOf) {
+        return new ConvertResponse(fromCurrency, toCurrency, convertedAmount, null, fromRate, toRate, asOf);
+    }
+}
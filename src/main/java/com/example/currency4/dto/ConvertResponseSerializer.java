@@ -0,0 +1,52 @@
+package com.example.currency4.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public class ConvertResponseSerializer extends StdSerializer<ConvertResponse> {
+
+    private static final SerializedString FROM_CURRENCY = new SerializedString("fromCurrency");
+    private static final SerializedString TO_CURRENCY = new SerializedString("toCurrency");
+    private static final SerializedString CONVERTED_AMOUNT = new SerializedString("convertedAmount");
+    private static final SerializedString SNAPSHOT_VERSION = new SerializedString("snapshotVersion");
+    private static final SerializedString FROM_RATE = new SerializedString("fromRate");
+    private static final SerializedString TO_RATE = new SerializedString("toRate");
+    private static final SerializedString AS_OF = new SerializedString("asOf");
+
+    public ConvertResponseSerializer() {
+        super(ConvertResponse.class);
+    }
+
+    @Override
+    public void serialize(ConvertResponse value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject(value);
+        generator.writeFieldName(FROM_CURRENCY);
+        generator.writeString(value.fromCurrency());
+        generator.writeFieldName(TO_CURRENCY);
+        generator.writeString(value.toCurrency());
+        generator.writeFieldName(CONVERTED_AMOUNT);
+        generator.writeNumber(value.convertedAmount());
+        if (value.snapshotVersion() != null) {
+            generator.writeFieldName(SNAPSHOT_VERSION);
+            generator.writeNumber(value.snapshotVersion());
+        }
+        if (value.fromRate() != null) {
+            generator.writeFieldName(FROM_RATE);
+            generator.writeNumber(value.fromRate());
+        }
+        if (value.toRate() != null) {
+            generator.writeFieldName(TO_RATE);
+            generator.writeNumber(value.toRate());
+        }
+        if (value.asOf() != null) {
+            generator.writeFieldName(AS_OF);
+            generator.writeString(value.asOf().toString());
+        }
+        generator.writeEndObject();
+    }
+}
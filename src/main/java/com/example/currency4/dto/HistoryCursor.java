@@ -0,0 +1,46 @@
+package com.example.currency4.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public final class HistoryCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime convertedAt;
+    private final long id;
+
+    public HistoryCursor(LocalDateTime convertedAt, long id) {
+        this.convertedAt = convertedAt;
+        this.id = id;
+    }
+
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid history cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = convertedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getConvertedAt() {
+        return convertedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
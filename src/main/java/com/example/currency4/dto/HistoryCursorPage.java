@@ -0,0 +1,28 @@
+package com.example.currency4.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class HistoryCursorPage {
+
+    private final List<ConversionHistoryView> items;
+    private final String nextCursor;
+
+    // Для чтения страницы клиентом, см. CborResponseDecoder
+    @JsonCreator
+    public HistoryCursorPage(@JsonProperty("items") List<ConversionHistoryView> items,
+                             @JsonProperty("nextCursor") String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ConversionHistoryView> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.currency4.dto;
+
+import java.time.LocalDateTime;
+
+public record RollupBucket(LocalDateTime bucketStart, long count, double totalAmount,
+                           double totalConvertedAmount, double minConvertedAmount,
+                           double maxConvertedAmount) {
+}
@@ -0,0 +1,5 @@
+package com.example.currency4.dto;
+
+public record RollupTotal(String key, long count, double totalAmount, double totalConvertedAmount,
+                          double minConvertedAmount, double maxConvertedAmount) {
+}
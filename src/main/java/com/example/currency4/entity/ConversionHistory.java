@@ -1,18 +1,12 @@
 package com.example.currency4.entity;
 
-import com.fasterxml.jackson.annotation.JsonBackReference;
-import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.JsonManagedReference;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Set;
 
 @Entity
 @Table(name = "conversion_history")
-@JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 public class ConversionHistory {
 
     @Id
@@ -35,17 +29,25 @@ public class ConversionHistory {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
-    @JsonBackReference
+    @JsonIgnore
     private User user;
 
-    @ManyToMany(fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "conversion_history_currency_rate",
-            joinColumns = @JoinColumn(name = "conversion_history_id"),
-            inverseJoinColumns = @JoinColumn(name = "currency_rate_code")
-    )
-    @JsonManagedReference
-    private Set<CurrencyRate> currencyRates = new HashSet<>();
+    @Column(name = "rate_snapshot_id")
+    private Long rateSnapshotId;
+
+    @Column(name = "from_rate")
+    private Double fromRate;
+
+    @Column(name = "to_rate")
+    private Double toRate;
+
+    @Column(name = "journal_seq")
+    @JsonIgnore
+    private Long journalSeq;
+
+    @Column(name = "journal_node")
+    @JsonIgnore
+    private String journalNode;
 
     public ConversionHistory() {
         this.convertedAt = LocalDateTime.now();
@@ -133,12 +135,44 @@ public class ConversionHistory {
         this.user = user;
     }
 
-    public Set<CurrencyRate> getCurrencyRates() {
-        return currencyRates;
+    public Long getRateSnapshotId() {
+        return rateSnapshotId;
+    }
+
+    public void setRateSnapshotId(Long rateSnapshotId) {
+        this.rateSnapshotId = rateSnapshotId;
+    }
+
+    public Double getFromRate() {
+        return fromRate;
+    }
+
+    public void setFromRate(Double fromRate) {
+        this.fromRate = fromRate;
+    }
+
+    public Double getToRate() {
+        return toRate;
+    }
+
+    public void setToRate(Double toRate) {
+        this.toRate = toRate;
+    }
+
+    public Long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(Long journalSeq) {
+        this.journalSeq = journalSeq;
+    }
+
+    public String getJournalNode() {
+        return journalNode;
     }
 
-    public void setCurrencyRates(Set<CurrencyRate> currencyRates) {
-        this.currencyRates = currencyRates;
+    public void setJournalNode(String journalNode) {
+        this.journalNode = journalNode;
     }
 
     @Override
@@ -2,9 +2,7 @@ package com.example.currency4.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Set;
 
 @Entity
 @Table(name = "currency_rate")
@@ -21,9 +19,6 @@ public class CurrencyRate {
     @Column(name = "source", length = 100)
     private String source;
 
-    @ManyToMany(mappedBy = "currencyRates", fetch = FetchType.LAZY)
-    private Set<ConversionHistory> conversionHistories = new HashSet<>();
-
     public CurrencyRate() {
         this.lastUpdated = LocalDateTime.now();
     }
@@ -67,14 +62,6 @@ public class CurrencyRate {
         this.source = source;
     }
 
-    public Set<ConversionHistory> getConversionHistories() {
-        return conversionHistories;
-    }
-
-    public void setConversionHistories(Set<ConversionHistory> conversionHistories) {
-        this.conversionHistories = conversionHistories;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
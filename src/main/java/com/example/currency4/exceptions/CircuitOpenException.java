@@ -0,0 +1,8 @@
+package com.example.currency4.exceptions;
+
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -34,6 +34,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleOverloaded(ServiceOverloadedException ex) {
+        logger.warn("Service overloaded: {}", ex.getMessage());
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Service Unavailable");
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(RatesUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleRatesUnavailable(RatesUnavailableException ex) {
+        logger.warn("Exchange rates unavailable: {}", ex.getMessage());
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Service Unavailable");
+        errorResponse.put("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleInternalServerError(Exception ex) {
         logger.error("Internal Server Error: {}", ex.getMessage(), ex);
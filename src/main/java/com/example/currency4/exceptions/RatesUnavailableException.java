@@ -0,0 +1,12 @@
+package com.example.currency4.exceptions;
+
+public class RatesUnavailableException extends RuntimeException {
+
+    public RatesUnavailableException(String message) {
+        super(message);
+    }
+
+    public RatesUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
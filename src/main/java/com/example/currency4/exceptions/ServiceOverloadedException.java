@@ -0,0 +1,8 @@
+package com.example.currency4.exceptions;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.currency4.model;
+
+public final class CacheStatistics {
+
+    private final String name;
+    private final long estimatedSize;
+    private final long hitCount;
+    private final long missCount;
+    private final double hitRate;
+    private final long evictionCount;
+    private final long loadCount;
+
+    public CacheStatistics(String name, long estimatedSize, long hitCount, long missCount, double hitRate,
+                           long evictionCount, long loadCount) {
+        this.name = name;
+        this.estimatedSize = estimatedSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.hitRate = hitRate;
+        this.evictionCount = evictionCount;
+        this.loadCount = loadCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.currency4.model;
+
+public final class CircuitBreakerStats {
+
+    private final String name;
+    private final String state;
+    private final int consecutiveFailures;
+    private final long opened;
+    private final long rejected;
+
+    public CircuitBreakerStats(String name, String state, int consecutiveFailures, long opened,
+                               long rejected) {
+        this.name = name;
+        this.state = state;
+        this.consecutiveFailures = consecutiveFailures;
+        this.opened = opened;
+        this.rejected = rejected;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getOpened() {
+        return opened;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.currency4.model;
+
+public final class CrossRateMatrix {
+
+    private final int size;
+    // Построчно: matrix[from * size + to] = rate(to) / rate(from)
+    private final double[] matrix;
+    private final double[] baseRow;
+
+    private CrossRateMatrix(int size, double[] matrix, double[] baseRow) {
+        this.size = size;
+        this.matrix = matrix;
+        this.baseRow = baseRow;
+    }
+
+    static CrossRateMatrix of(double[] rates) {
+        int size = rates.length;
+        double[] matrix = new double[size * size];
+        for (int from = 0; from < size; from++) {
+            double inverse = 1.0 / rates[from];
+            int offset = from * size;
+            for (int to = 0; to < size; to++) {
+                matrix[offset + to] = rates[to] * inverse;
+            }
+        }
+        return new CrossRateMatrix(size, matrix, rates.clone());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double crossRate(int fromIndex, int toIndex) {
+        return fromIndex == RateTable.UNKNOWN ? baseRow[toIndex] : matrix[fromIndex * size + toIndex];
+    }
+
+    public void convertAll(int fromIndex, double amount, double[] target) {
+        double[] row = fromIndex == RateTable.UNKNOWN ? baseRow : matrix;
+        int offset = fromIndex == RateTable.UNKNOWN ? 0 : fromIndex * size;
+        // Простой счётный цикл по непрерывной строке: C2 векторизует его сам (SuperWord)
+        for (int to = 0; to < size; to++) {
+            target[to] = amount * row[offset + to];
+        }
+    }
+}
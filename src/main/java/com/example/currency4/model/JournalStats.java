@@ -0,0 +1,93 @@
+package com.example.currency4.model;
+
+public final class JournalStats {
+
+    private final long writtenSeq;
+    private final long durableSeq;
+    private final long appliedSeq;
+    private final int segments;
+    private final long appends;
+    private final long syncs;
+    private final long replayBatches;
+    private final long replayedRows;
+    private final long skippedDuplicates;
+    private final long failedReplays;
+    private final long quarantinedRows;
+    private final long deletedSegments;
+
+    public JournalStats(long writtenSeq, long durableSeq, long appliedSeq, int segments, long appends,
+                        long syncs, long replayBatches, long replayedRows, long skippedDuplicates,
+                        long failedReplays, long quarantinedRows, long deletedSegments) {
+        this.writtenSeq = writtenSeq;
+        this.durableSeq = durableSeq;
+        this.appliedSeq = appliedSeq;
+        this.segments = segments;
+        this.appends = appends;
+        this.syncs = syncs;
+        this.replayBatches = replayBatches;
+        this.replayedRows = replayedRows;
+        this.skippedDuplicates = skippedDuplicates;
+        this.failedReplays = failedReplays;
+        this.quarantinedRows = quarantinedRows;
+        this.deletedSegments = deletedSegments;
+    }
+
+    public long getWrittenSeq() {
+        return writtenSeq;
+    }
+
+    public long getDurableSeq() {
+        return durableSeq;
+    }
+
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    // Записи, уже сохранённые в журнале, но ещё не попавшие в conversion_history
+    public long getReplayLag() {
+        return Math.max(durableSeq - appliedSeq, 0);
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public long getAppends() {
+        return appends;
+    }
+
+    public long getSyncs() {
+        return syncs;
+    }
+
+    // Сколько конвертаций в среднем делят один fsync
+    public double getAppendsPerSync() {
+        return syncs == 0 ? 0 : (double) appends / syncs;
+    }
+
+    public long getReplayBatches() {
+        return replayBatches;
+    }
+
+    public long getReplayedRows() {
+        return replayedRows;
+    }
+
+    public long getSkippedDuplicates() {
+        return skippedDuplicates;
+    }
+
+    public long getFailedReplays() {
+        return failedReplays;
+    }
+
+    // Записи, отвергнутые БД и перенесённые в dead-letter.csv каталога журнала
+    public long getQuarantinedRows() {
+        return quarantinedRows;
+    }
+
+    public long getDeletedSegments() {
+        return deletedSegments;
+    }
+}
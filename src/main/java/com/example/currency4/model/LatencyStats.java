@@ -0,0 +1,70 @@
+package com.example.currency4.model;
+
+// Все времена в микросекундах
+public final class LatencyStats {
+
+    private final String name;
+    private final String layer;
+    private final long count;
+    private final long failures;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public LatencyStats(String name, String layer, long count, long failures, long mean, long p50, long p90,
+                        long p99, long p999, long max) {
+        this.name = name;
+        this.layer = layer;
+        this.count = count;
+        this.failures = failures;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
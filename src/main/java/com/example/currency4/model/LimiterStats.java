@@ -0,0 +1,38 @@
+package com.example.currency4.model;
+
+public final class LimiterStats {
+
+    private final String name;
+    private final int permits;
+    private final int available;
+    private final int queued;
+    private final long rejected;
+
+    public LimiterStats(String name, int permits, int available, int queued, long rejected) {
+        this.name = name;
+        this.permits = permits;
+        this.available = available;
+        this.queued = queued;
+        this.rejected = rejected;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.currency4.model;
+
+public final class RateHistoryStats {
+
+    private final int currencies;
+    private final long points;
+    private final String oldestPoint;
+    private final long retentionDays;
+    private final long downsampleAfterDays;
+    private final long downsampleIntervalMinutes;
+
+    public RateHistoryStats(int currencies, long points, String oldestPoint, long retentionDays,
+                            long downsampleAfterDays, long downsampleIntervalMinutes) {
+        this.currencies = currencies;
+        this.points = points;
+        this.oldestPoint = oldestPoint;
+        this.retentionDays = retentionDays;
+        this.downsampleAfterDays = downsampleAfterDays;
+        this.downsampleIntervalMinutes = downsampleIntervalMinutes;
+    }
+
+    public int getCurrencies() {
+        return currencies;
+    }
+
+    public long getPoints() {
+        return points;
+    }
+
+    public String getOldestPoint() {
+        return oldestPoint;
+    }
+
+    public long getRetentionDays() {
+        return retentionDays;
+    }
+
+    public long getDownsampleAfterDays() {
+        return downsampleAfterDays;
+    }
+
+    public long getDownsampleIntervalMinutes() {
+        return downsampleIntervalMinutes;
+    }
+
+    // Примерный объём в куче: long + double на точку
+    public long getEstimatedBytes() {
+        return points * (Long.BYTES + Double.BYTES);
+    }
+}
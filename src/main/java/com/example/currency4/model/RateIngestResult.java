@@ -0,0 +1,31 @@
+package com.example.currency4.model;
+
+public final class RateIngestResult {
+
+    private final int inserted;
+    private final int updated;
+    private final int skipped;
+
+    public RateIngestResult(int inserted, int updated, int skipped) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.skipped = skipped;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public String toString() {
+        return "inserted=" + inserted + ", updated=" + updated + ", skipped=" + skipped;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.currency4.model;
+
+import java.util.Arrays;
+
+public final class RateSeries {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long[] timestamps;
+    private final double[] rates;
+    private final int length;
+
+    private RateSeries(long[] timestamps, double[] rates, int length) {
+        this.timestamps = timestamps;
+        this.rates = rates;
+        this.length = length;
+    }
+
+    public static RateSeries empty() {
+        return new RateSeries(new long[INITIAL_CAPACITY], new double[INITIAL_CAPACITY], 0);
+    }
+
+    // Вызывать только на самой новой версии ряда и из одного потока: новые точки пишутся
+    // в хвост общих массивов, который старые экземпляры не видят, поскольку читают первые length элементов
+    public RateSeries append(long timestamp, double rate) {
+        if (length > 0 && timestamp < timestamps[length - 1]) {
+            throw new IllegalArgumentException("Rate points must be appended in time order");
+        }
+        if (length > 0 && Double.compare(rates[length - 1], rate) == 0) {
+            return this;
+        }
+        long[] newTimestamps = timestamps;
+        double[] newRates = rates;
+        if (length == timestamps.length) {
+            newTimestamps = Arrays.copyOf(timestamps, length << 1);
+            newRates = Arrays.copyOf(rates, length << 1);
+        }
+        newTimestamps[length] = timestamp;
+        newRates[length] = rate;
+        return new RateSeries(newTimestamps, newRates, length + 1);
+    }
+
+    // Курс, действовавший в момент timestamp, или NaN, если ряд начинается позже
+    public double rateAsOf(long timestamp) {
+        int low = 0;
+        int high = length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? Double.NaN : rates[found];
+    }
+
+    public RateSeries compact(long retainFrom, long downsampleBefore, long bucketMillis) {
+        long[] newTimestamps = new long[Math.max(length, INITIAL_CAPACITY)];
+        double[] newRates = new double[newTimestamps.length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            if (isSuperseded(i, retainFrom, downsampleBefore, bucketMillis)) {
+                continue;
+            }
+            if (size > 0 && Double.compare(newRates[size - 1], rates[i]) == 0) {
+                continue;
+            }
+            newTimestamps[size] = timestamps[i];
+            newRates[size] = rates[i];
+            size++;
+        }
+        int capacity = Math.max(Integer.highestOneBit(Math.max(size, 1)) << 1, INITIAL_CAPACITY);
+        return new RateSeries(Arrays.copyOf(newTimestamps, capacity), Arrays.copyOf(newRates, capacity),
+                size);
+    }
+
+    private boolean isSuperseded(int i, long retainFrom, long downsampleBefore, long bucketMillis) {
+        if (i == length - 1) {
+            return false;
+        }
+        long timestamp = timestamps[i];
+        long next = timestamps[i + 1];
+        // Последняя точка до границы хранения остаётся: это курс, действовавший на границе
+        if (timestamp < retainFrom && next <= retainFrom) {
+            return true;
+        }
+        // В прореживаемой части от каждого интервала остаётся последняя точка
+        return timestamp < downsampleBefore && next < downsampleBefore
+                && next / bucketMillis == timestamp / bucketMillis;
+    }
+
+    public long firstTimestamp() {
+        return length > 0 ? timestamps[0] : Long.MAX_VALUE;
+    }
+
+    public long lastTimestamp() {
+        return length > 0 ? timestamps[length - 1] : Long.MIN_VALUE;
+    }
+
+    public int size() {
+        return length;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.currency4.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+public final class RateSnapshot {
+
+    private final long version;
+    private final Instant fetchedAt;
+    private final String base;
+    private final RateTable table;
+
+    public RateSnapshot(long version, Instant fetchedAt, String base, Map<String, Double> rates) {
+        this.version = version;
+        this.fetchedAt = fetchedAt;
+        this.base = base;
+        this.table = RateTable.of(rates);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public Duration getAge() {
+        return Duration.between(fetchedAt, Instant.now());
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    public RateTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.currency4.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class RateTable {
+
+    public static final int UNKNOWN = -1;
+
+    private final String[] codes;
+    private final double[] rates;
+    private final Map<String, Integer> indexByCode;
+    private final CrossRateMatrix crossRates;
+    // Кэш "сырая строка запроса -> индекс", чтобы не вызывать toUpperCase на каждом запросе. Хранит
+    // только написания известных кодов, поэтому ограничен самой таблицей, а не числом разных запросов
+    private final Map<String, Integer> inputCache = new ConcurrentHashMap<>();
+
+    private RateTable(String[] codes, double[] rates) {
+        this.codes = codes;
+        this.rates = rates;
+        this.indexByCode = HashMap.newHashMap(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            indexByCode.put(codes[i], i);
+        }
+        this.crossRates = CrossRateMatrix.of(rates);
+    }
+
+    public static RateTable of(Map<String, Double> rateMap) {
+        String[] codes = rateMap.keySet().stream()
+                .map(code -> code.toUpperCase(Locale.ROOT))
+                .sorted()
+                .distinct()
+                .toArray(String[]::new);
+        double[] rates = new double[codes.length];
+        for (Map.Entry<String, Double> entry : rateMap.entrySet()) {
+            int index = Arrays.binarySearch(codes, entry.getKey().toUpperCase(Locale.ROOT));
+            rates[index] = entry.getValue();
+        }
+        return new RateTable(codes, rates);
+    }
+
+    public int indexOf(String code) {
+        Integer index = indexByCode.get(code);
+        if (index == null) {
+            index = inputCache.get(code);
+        }
+        if (index != null) {
+            return index;
+        }
+        index = indexByCode.get(code.toUpperCase(Locale.ROOT));
+        if (index == null) {
+            return UNKNOWN;
+        }
+        inputCache.put(code, index);
+        return index;
+    }
+
+    // Известная валюта берётся из таблицы уже в верхнем регистре, без преобразования на каждом запросе
+    public String codeOf(int index, String code) {
+        return index == UNKNOWN ? code.toUpperCase(Locale.ROOT) : codes[index];
+    }
+
+    public double rateAt(int index) {
+        // Неизвестная валюта конвертируется по курсу 1.0, как и раньше
+        return index == UNKNOWN ? 1.0 : rates[index];
+    }
+
+    public String codeAt(int index) {
+        return codes[index];
+    }
+
+    public boolean hasSameRates(Map<String, Double> rateMap) {
+        if (rateMap.size() != codes.length) {
+            return false;
+        }
+        for (Map.Entry<String, Double> entry : rateMap.entrySet()) {
+            Integer index = indexByCode.get(entry.getKey().toUpperCase(Locale.ROOT));
+            if (index == null || Double.compare(rates[index], entry.getValue()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Double> toMap() {
+        Map<String, Double> rateMap = HashMap.newHashMap(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            rateMap.put(codes[i], rates[i]);
+        }
+        return rateMap;
+    }
+
+    public CrossRateMatrix getCrossRates() {
+        return crossRates;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.currency4.model;
+
+import com.example.currency4.entity.ConversionHistory;
+
+import java.util.Locale;
+
+public enum RollupDimension {
+    PAIR("UPPER(from_currency) || '/' || UPPER(to_currency)",
+            "from_currency IS NOT NULL AND to_currency IS NOT NULL"),
+    USER("CAST(user_id AS VARCHAR)", "user_id IS NOT NULL");
+
+    private final String keyExpression;
+    private final String presentCondition;
+
+    RollupDimension(String keyExpression, String presentCondition) {
+        this.keyExpression = keyExpression;
+        this.presentCondition = presentCondition;
+    }
+
+    public static RollupDimension parse(String value) {
+        String normalized = value.toUpperCase(Locale.ROOT);
+        // В URL измерения во множественном числе: /pairs, /users
+        if (normalized.endsWith("S")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported dimension: " + value + " (use pairs or users)");
+        }
+    }
+
+    public static String pairKey(String fromCurrency, String toCurrency) {
+        return fromCurrency.toUpperCase(Locale.ROOT) + "/" + toCurrency.toUpperCase(Locale.ROOT);
+    }
+
+    // Ключ строки истории в этом измерении или null, если строка в него не попадает
+    public String keyOf(ConversionHistory history) {
+        if (this == PAIR) {
+            return history.getFromCurrency() != null && history.getToCurrency() != null
+                    ? pairKey(history.getFromCurrency(), history.getToCurrency())
+                    : null;
+        }
+        return history.getUser() != null && history.getUser().getId() != null
+                ? String.valueOf(history.getUser().getId())
+                : null;
+    }
+
+    public String getKeyExpression() {
+        return keyExpression;
+    }
+
+    public String getPresentCondition() {
+        return presentCondition;
+    }
+}
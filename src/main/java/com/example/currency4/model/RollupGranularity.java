@@ -0,0 +1,39 @@
+package com.example.currency4.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+public enum RollupGranularity {
+    HOUR(ChronoUnit.HOURS, "hour"),
+    DAY(ChronoUnit.DAYS, "day");
+
+    private final ChronoUnit unit;
+    private final String sqlUnit;
+
+    RollupGranularity(ChronoUnit unit, String sqlUnit) {
+        this.unit = unit;
+        this.sqlUnit = sqlUnit;
+    }
+
+    public static RollupGranularity parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported granularity: " + value + " (use hour or day)");
+        }
+    }
+
+    public LocalDateTime bucketOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    // Единица для date_trunc в PostgreSQL
+    public String getSqlUnit() {
+        return sqlUnit;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.currency4.model;
+
+public final class SingleFlightStats {
+
+    private final String name;
+    private final long executions;
+    private final long coalesced;
+    private final long waiterTimeouts;
+    private final int inFlight;
+
+    public SingleFlightStats(String name, long executions, long coalesced, long waiterTimeouts,
+                             int inFlight) {
+        this.name = name;
+        this.executions = executions;
+        this.coalesced = coalesced;
+        this.waiterTimeouts = waiterTimeouts;
+        this.inFlight = inFlight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getWaiterTimeouts() {
+        return waiterTimeouts;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+}
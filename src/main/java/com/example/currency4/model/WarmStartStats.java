@@ -0,0 +1,41 @@
+package com.example.currency4.model;
+
+public final class WarmStartStats {
+
+    private final boolean enabled;
+    private final String file;
+    private final String initialSource;
+    private final long fileLoadMillis;
+    private final long firstSnapshotServedAfterStartMillis;
+
+    public WarmStartStats(boolean enabled, String file, String initialSource, long fileLoadMillis,
+                          long firstSnapshotServedAfterStartMillis) {
+        this.enabled = enabled;
+        this.file = file;
+        this.initialSource = initialSource;
+        this.fileLoadMillis = fileLoadMillis;
+        this.firstSnapshotServedAfterStartMillis = firstSnapshotServedAfterStartMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    // Откуда взят первый снимок: file, upstream или database
+    public String getInitialSource() {
+        return initialSource;
+    }
+
+    public long getFileLoadMillis() {
+        return fileLoadMillis;
+    }
+
+    // Время от старта JVM до первой выдачи курсов для конвертации, -1 если её ещё не было
+    public long getFirstSnapshotServedAfterStartMillis() {
+        return firstSnapshotServedAfterStartMillis;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.currency4.model;
+
+public final class WriteBehindStats {
+
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final String overflowPolicy;
+    private final long enqueued;
+    private final long dropped;
+    private final long writtenByCaller;
+    private final long batchesFlushed;
+    private final long rowsFlushed;
+    private final long failedRows;
+    private final long retriedBatches;
+    private final long spilledRows;
+    private final long lastBatchSize;
+    private final long maxBatchSize;
+
+    public WriteBehindStats(int queueDepth, int queueCapacity, String overflowPolicy, long enqueued,
+                            long dropped, long writtenByCaller, long batchesFlushed, long rowsFlushed,
+                            long failedRows, long retriedBatches, long spilledRows, long lastBatchSize,
+                            long maxBatchSize) {
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.enqueued = enqueued;
+        this.dropped = dropped;
+        this.writtenByCaller = writtenByCaller;
+        this.batchesFlushed = batchesFlushed;
+        this.rowsFlushed = rowsFlushed;
+        this.failedRows = failedRows;
+        this.retriedBatches = retriedBatches;
+        this.spilledRows = spilledRows;
+        this.lastBatchSize = lastBatchSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getEnqueued() {
+        return enqueued;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getWrittenByCaller() {
+        return writtenByCaller;
+    }
+
+    public long getBatchesFlushed() {
+        return batchesFlushed;
+    }
+
+    public long getRowsFlushed() {
+        return rowsFlushed;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public long getRetriedBatches() {
+        return retriedBatches;
+    }
+
+    public long getSpilledRows() {
+        return spilledRows;
+    }
+
+    public long getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public double getAverageBatchSize() {
+        return batchesFlushed == 0 ? 0 : (double) rowsFlushed / batchesFlushed;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.entity.ConversionHistory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Записи истории, которые не удалось перенести в БД: отвергнутые ею при любой попытке (например,
+// пользователь или снимок курсов удалён до воспроизведения журнала) или не записанные write-behind
+// после всех повторов. Строки CSV дописываются со сбросом на диск и разбираются вручную
+public class ConversionDeadLetterFile {
+
+    private static final String HEADER = "journalSeq,fromCurrency,toCurrency,amount,convertedAmount,"
+            + "convertedAt,status,userId,rateSnapshotId,fromRate,toRate,notes,error\n";
+
+    private final Path file;
+
+    public ConversionDeadLetterFile(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized void append(ConversionHistory history, String error) {
+        String line = csv(history.getJournalSeq()) + ","
+                + csv(history.getFromCurrency()) + ","
+                + csv(history.getToCurrency()) + ","
+                + history.getAmount() + ","
+                + history.getConvertedAmount() + ","
+                + history.getConvertedAt() + ","
+                + csv(history.getStatus()) + ","
+                + (history.getUser() != null ? csv(history.getUser().getId()) : "") + ","
+                + csv(history.getRateSnapshotId()) + ","
+                + csv(history.getFromRate()) + ","
+                + csv(history.getToRate()) + ","
+                + csv(history.getNotes()) + ","
+                + csv(error) + "\n";
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = StandardCharsets.UTF_8.encode(channel.size() == 0 ? HEADER + line : line);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write dead letter file " + file, e);
+        }
+    }
+
+    // Наибольший journal_seq в файле: эти записи уже разобраны и повторно не воспроизводятся
+    public long findMaxJournalSeq() {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        long max = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            // Внутри поля в кавычках перевод строки не начинает новую запись
+            boolean quoted = false;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (!quoted && comma > 0) {
+                    max = Math.max(max, Long.parseLong(line.substring(0, comma)));
+                }
+                if ((line.chars().filter(c -> c == '"').count() & 1) != 0) {
+                    quoted = !quoted;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read dead letter file " + file, e);
+        }
+        return max;
+    }
+
+    private static String csv(Object value) {
+        return value != null ? csv(value.toString()) : "";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
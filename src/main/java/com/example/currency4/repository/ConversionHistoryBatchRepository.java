@@ -0,0 +1,89 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.entity.ConversionHistory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class ConversionHistoryBatchRepository {
+
+    private static final String INSERT_HISTORY_SQL = """
+            INSERT INTO conversion_history
+                (from_currency, to_currency, amount, converted_amount, converted_at, notes, status, user_id,
+                 rate_snapshot_id, from_rate, to_rate, journal_node, journal_seq)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversionRollupRepository conversionRollupRepository;
+
+    public ConversionHistoryBatchRepository(JdbcTemplate jdbcTemplate,
+                                            ConversionRollupRepository conversionRollupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.conversionRollupRepository = conversionRollupRepository;
+    }
+
+    @Transactional
+    public void insertAll(List<ConversionHistory> histories) {
+        if (histories.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_HISTORY_SQL, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ConversionHistory history = histories.get(i);
+                        int column = 1;
+                        ps.setString(column++, history.getFromCurrency());
+                        ps.setString(column++, history.getToCurrency());
+                        ps.setDouble(column++, history.getAmount());
+                        ps.setDouble(column++, history.getConvertedAmount());
+                        ps.setTimestamp(column++, Timestamp.valueOf(history.getConvertedAt()));
+                        ps.setString(column++, history.getNotes());
+                        ps.setString(column++, history.getStatus());
+                        ps.setLong(column++, history.getUser().getId());
+                        ps.setObject(column++, history.getRateSnapshotId(), Types.BIGINT);
+                        ps.setObject(column++, history.getFromRate(), Types.DOUBLE);
+                        ps.setObject(column++, history.getToRate(), Types.DOUBLE);
+                        ps.setString(column++, history.getJournalNode());
+                        ps.setObject(column, history.getJournalSeq(), Types.BIGINT);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return histories.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < histories.size(); i++) {
+            histories.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+        }
+        // Агрегаты обновляются в той же транзакции, что и вставка истории
+        conversionRollupRepository.addAll(histories);
+    }
+
+    // Номера журнала у каждого экземпляра свои, поэтому все выборки — в пределах узла
+    public List<Long> findJournalSeqsBetween(String node, long from, long to) {
+        return jdbcTemplate.queryForList("SELECT journal_seq FROM conversion_history "
+                + "WHERE journal_node = ? AND journal_seq BETWEEN ? AND ?", Long.class, node, from, to);
+    }
+
+    public long findMaxJournalSeq(String node) {
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT max(journal_seq) FROM conversion_history WHERE journal_node = ?", Long.class, node);
+        return max != null ? max : 0;
+    }
+}
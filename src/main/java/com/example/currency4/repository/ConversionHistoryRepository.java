@@ -1,26 +1,30 @@
 package com.example.currency4.repository;
 
 import com.example.currency4.entity.ConversionHistory;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.stream.Stream;
 
 public interface ConversionHistoryRepository extends JpaRepository<ConversionHistory, Long> {
 
-    List<ConversionHistory> findByFromCurrency(String fromCurrency);
-
-    List<ConversionHistory> findByToCurrency(String toCurrency);
-
-    @Query("SELECT ch FROM ConversionHistory ch WHERE ch.convertedAt = :date")
-    List<ConversionHistory> findByDate(@Param("date") LocalDateTime date);
-
-    @Query(value = "SELECT * FROM conversion_history WHERE user_id = :userId", nativeQuery = true)
-    List<ConversionHistory> findByUserIdNative(@Param("userId") Long userId);
-
-    Page<ConversionHistory> findAll(Pageable pageable);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT ch FROM ConversionHistory ch ORDER BY ch.convertedAt, ch.id")
+    Stream<ConversionHistory> streamAllOrdered();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT ch FROM ConversionHistory ch WHERE ch.convertedAt >= :from AND ch.convertedAt < :to "
+            + "ORDER BY ch.convertedAt, ch.id")
+    Stream<ConversionHistory> streamBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@Transactional(readOnly = true)
+public class ConversionHistoryViewRepository {
+
+    private static final String SELECT_VIEWS = "SELECT new com.example.currency4.dto.ConversionHistoryView("
+            + "ch.id, ch.fromCurrency, ch.toCurrency, ch.amount, ch.convertedAmount, ch.convertedAt, "
+            + "ch.notes, ch.status, u.id, u.username, ch.rateSnapshotId, ch.fromRate, ch.toRate) "
+            + "FROM ConversionHistory ch JOIN ch.user u";
+    private static final String COUNT = "SELECT count(ch) FROM ConversionHistory ch";
+    private static final String ORDER_BY = " ORDER BY ch.convertedAt, ch.id";
+    private static final int NO_LIMIT = 0;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<ConversionHistoryView> findAll() {
+        return list("", Map.of(), 0, NO_LIMIT);
+    }
+
+    public Optional<ConversionHistoryView> findById(Long id) {
+        return list(" WHERE ch.id = :id", Map.of("id", id), 0, NO_LIMIT).stream().findFirst();
+    }
+
+    public List<ConversionHistoryView> findByFromCurrency(String currency) {
+        return list(" WHERE ch.fromCurrency = :currency", Map.of("currency", currency), 0, NO_LIMIT);
+    }
+
+    public List<ConversionHistoryView> findByToCurrency(String currency) {
+        return list(" WHERE ch.toCurrency = :currency", Map.of("currency", currency), 0, NO_LIMIT);
+    }
+
+    public List<ConversionHistoryView> findByConvertedAt(LocalDateTime convertedAt) {
+        return list(" WHERE ch.convertedAt = :convertedAt", Map.of("convertedAt", convertedAt), 0, NO_LIMIT);
+    }
+
+    public List<ConversionHistoryView> findByUserId(Long userId) {
+        return list(" WHERE ch.user.id = :userId", Map.of("userId", userId), 0, NO_LIMIT);
+    }
+
+    public List<ConversionHistoryView> findFirstPage(int limit) {
+        return list("", Map.of(), 0, limit);
+    }
+
+    public List<ConversionHistoryView> findPageAfter(LocalDateTime convertedAt, long id, int limit) {
+        // Избыточное условие convertedAt >= :convertedAt позволяет начать обход индекса с нужной позиции
+        return list(" WHERE ch.convertedAt >= :convertedAt"
+                        + " AND (ch.convertedAt > :convertedAt OR ch.id > :id)",
+                Map.of("convertedAt", convertedAt, "id", id), 0, limit);
+    }
+
+    public List<ConversionHistoryView> findInRange(LocalDateTime from, LocalDateTime to, String fromCurrency,
+                                                   String toCurrency, Long userId, int limit) {
+        StringBuilder where = new StringBuilder(" WHERE ch.convertedAt >= :from AND ch.convertedAt < :to");
+        Map<String, Object> params = new HashMap<>();
+        params.put("from", from);
+        params.put("to", to);
+        if (fromCurrency != null) {
+            where.append(" AND ch.fromCurrency = :fromCurrency");
+            params.put("fromCurrency", fromCurrency);
+        }
+        if (toCurrency != null) {
+            where.append(" AND ch.toCurrency = :toCurrency");
+            params.put("toCurrency", toCurrency);
+        }
+        if (userId != null) {
+            where.append(" AND ch.user.id = :userId");
+            params.put("userId", userId);
+        }
+        return list(where.toString(), params, 0, limit);
+    }
+
+    public Page<ConversionHistoryView> findPage(Pageable pageable) {
+        List<ConversionHistoryView> content = list("", Map.of(), (int) pageable.getOffset(),
+                pageable.getPageSize());
+        long total = entityManager.createQuery(COUNT, Long.class).getSingleResult();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private List<ConversionHistoryView> list(String where, Map<String, Object> params, int offset,
+                                             int limit) {
+        TypedQuery<ConversionHistoryView> query = entityManager
+                .createQuery(SELECT_VIEWS + where + ORDER_BY, ConversionHistoryView.class);
+        params.forEach(query::setParameter);
+        if (offset > 0) {
+            query.setFirstResult(offset);
+        }
+        if (limit != NO_LIMIT) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+}
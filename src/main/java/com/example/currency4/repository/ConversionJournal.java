@@ -0,0 +1,543 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Журнал из сегментов фиксированного размера, отображённых в память. Запись: длина, CRC32, тело.
+// Нулевая длина или несовпадение CRC — конец журнала (в том числе оборванная при сбое запись).
+// Один писатель на процесс и один читатель (воспроизведение в БД)
+public class ConversionJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversionJournal.class);
+
+    private static final int MAGIC = 0x434A524E;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte HAS_NOTES = 0x01;
+    private static final byte HAS_STATUS = 0x02;
+    private static final byte HAS_SNAPSHOT = 0x04;
+    private static final byte HAS_FROM_RATE = 0x08;
+    private static final byte HAS_TO_RATE = 0x10;
+    // Флаги, пользователь, convertedAt (секунды и наносекунды), две суммы, снимок, два курса
+    // и длины четырёх строк
+    private static final int FIXED_PAYLOAD_BYTES = 1 + Long.BYTES + Long.BYTES + Integer.BYTES
+            + Double.BYTES + Double.BYTES + Long.BYTES + Double.BYTES + Double.BYTES
+            + Short.BYTES + Short.BYTES + Short.BYTES + Short.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    // Блокировка только на копирование в память; fsync выполняется вне неё
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Segment current;
+    private long nextSeq;
+    private volatile long writtenSeq;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncInProgress;
+    private volatile DurablePoint durable;
+
+    private Segment readSegment;
+    private int readPosition;
+
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong deletedSegments = new AtomicLong();
+
+    private ConversionJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    // appliedSeq — наибольший номер, уже воспроизведённый в БД: нумерация продолжается после него,
+    // даже если все сегменты были удалены
+    public static ConversionJournal open(Path directory, int segmentSize, long appliedSeq) {
+        if (segmentSize <= SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal segment size is too small: " + segmentSize);
+        }
+        ConversionJournal journal = new ConversionJournal(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            journal.recover(appliedSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open conversion journal in " + directory, e);
+        }
+        return journal;
+    }
+
+    // Возвращает управление, когда запись и все предыдущие сброшены на диск
+    public long append(ConversionHistory history) {
+        return appendAll(List.of(history));
+    }
+
+    // Записи пакета получают номера подряд и сбрасываются на диск одним fsync; возвращает номер первой
+    public long appendAll(List<ConversionHistory> histories) {
+        List<byte[]> payloads = new ArrayList<>(histories.size());
+        for (ConversionHistory history : histories) {
+            byte[] payload = encode(history);
+            if (RECORD_HEADER_BYTES + Long.BYTES + payload.length > segmentSize - SEGMENT_HEADER_BYTES) {
+                throw new IllegalArgumentException("Conversion history record is too large for the journal");
+            }
+            payloads.add(payload);
+        }
+        long firstSeq;
+        long lastSeq;
+        appendLock.lock();
+        try {
+            firstSeq = nextSeq;
+            for (byte[] payload : payloads) {
+                writeRecord(payload);
+            }
+            lastSeq = nextSeq - 1;
+        } finally {
+            appendLock.unlock();
+        }
+        appends.addAndGet(payloads.size());
+        awaitDurable(lastSeq);
+        return firstSeq;
+    }
+
+    private void writeRecord(byte[] payload) {
+        int recordBytes = RECORD_HEADER_BYTES + Long.BYTES + payload.length;
+        if (current.position + recordBytes > segmentSize) {
+            roll();
+        }
+        long seq = nextSeq++;
+        ByteBuffer record = ByteBuffer.allocate(Long.BYTES + payload.length);
+        record.putLong(seq).put(payload).flip();
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        MappedByteBuffer buffer = current.buffer;
+        buffer.putInt(current.position + Integer.BYTES, (int) crc.getValue());
+        buffer.put(current.position + RECORD_HEADER_BYTES, record, 0, record.limit());
+        // Длина пишется последней: до неё запись при восстановлении считается отсутствующей
+        buffer.putInt(current.position, record.limit());
+        current.position += recordBytes;
+        current.lastSeq = seq;
+        writtenSeq = seq;
+    }
+
+    // Групповая фиксация: первый ожидающий сбрасывает на диск всё записанное к этому моменту,
+    // остальные ждут его результата вместо собственного fsync
+    private void awaitDurable(long seq) {
+        syncLock.lock();
+        try {
+            while (durable.seq < seq) {
+                if (syncInProgress) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncInProgress = true;
+                DurablePoint target = null;
+                boolean forced = false;
+                syncLock.unlock();
+                try {
+                    target = captureWritten();
+                    target.segment.buffer.force();
+                    forced = true;
+                } finally {
+                    syncLock.lock();
+                    syncInProgress = false;
+                    if (forced && target.seq > durable.seq) {
+                        durable = target;
+                        syncs.incrementAndGet();
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private DurablePoint captureWritten() {
+        appendLock.lock();
+        try {
+            return new DurablePoint(current, current.position, writtenSeq);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Читает только записи, уже сброшенные на диск; вызывается из одного потока воспроизведения
+    public List<ConversionHistory> readDurable(int maxRecords) {
+        List<ConversionHistory> records = new ArrayList<>();
+        DurablePoint point = durable;
+        while (records.size() < maxRecords) {
+            int end = readSegment == point.segment ? point.position : readSegment.sealedEnd;
+            if (end < 0) {
+                // Сегмент новее зафиксированной точки: его записи ещё не сброшены на диск
+                break;
+            }
+            if (readPosition >= end) {
+                if (readSegment == point.segment) {
+                    break;
+                }
+                readSegment = segments.get(segments.indexOf(readSegment) + 1);
+                readPosition = SEGMENT_HEADER_BYTES;
+                continue;
+            }
+            Record record = readRecord(readSegment.buffer, readPosition, end);
+            if (record == null) {
+                throw new IllegalStateException("Corrupt conversion journal record in " + readSegment.path
+                        + " at offset " + readPosition);
+            }
+            readPosition = record.next;
+            records.add(record.history);
+        }
+        return records;
+    }
+
+    // Удаляет запечатанные сегменты, все записи которых уже воспроизведены в БД
+    public void release(long appliedSeq) {
+        boolean deleted = false;
+        for (Segment segment : segments) {
+            if (segment == readSegment || segment.sealedEnd < 0 || segment.lastSeq > appliedSeq) {
+                break;
+            }
+            segments.remove(segment);
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                deletedSegments.incrementAndGet();
+                deleted = true;
+            } catch (IOException e) {
+                logger.warn("Unable to delete replayed journal segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+        if (deleted) {
+            try {
+                syncDirectory();
+            } catch (IOException e) {
+                // Не сброшенное удаление безопасно: после сбоя сегмент снова откроется и его записи
+                // пропустятся по appliedSeq
+                logger.warn("Unable to sync journal directory {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    public long getWrittenSeq() {
+        return writtenSeq;
+    }
+
+    public long getDurableSeq() {
+        return durable.seq;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getAppends() {
+        return appends.get();
+    }
+
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    public long getDeletedSegments() {
+        return deletedSegments.get();
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            current.buffer.force();
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to close conversion journal: {}", e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void recover(long appliedSeq) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(Path::toString));
+
+        long lastSeq = appliedSeq;
+        int pending = 0;
+        for (Path file : files) {
+            pending += loadSegment(file, appliedSeq);
+            lastSeq = Math.max(lastSeq, segments.get(segments.size() - 1).lastSeq);
+        }
+
+        nextSeq = lastSeq + 1;
+        writtenSeq = lastSeq;
+        if (segments.isEmpty()) {
+            current = createSegment(nextSeq);
+            segments.add(current);
+        } else {
+            current = segments.get(segments.size() - 1);
+            current.sealedEnd = -1;
+        }
+        durable = new DurablePoint(current, current.position, lastSeq);
+        skipApplied(appliedSeq);
+        release(appliedSeq);
+        logger.info("Opened conversion journal in {}: {} segments, last seq {}, {} records to replay",
+                directory, segments.size(), lastSeq, pending);
+    }
+
+    // Возвращает число записей сегмента, ещё не применённых в БД
+    private int loadSegment(Path file, long appliedSeq) throws IOException {
+        Segment segment = mapSegment(file);
+        int pending = 0;
+        int position = SEGMENT_HEADER_BYTES;
+        Record record;
+        while ((record = readRecord(segment.buffer, position, segmentSize)) != null) {
+            position = record.next;
+            segment.lastSeq = record.history.getJournalSeq();
+            if (segment.lastSeq > appliedSeq) {
+                pending++;
+            }
+        }
+        if (position + Integer.BYTES <= segmentSize && segment.buffer.getInt(position) != 0) {
+            // Оборванная при сбое запись: обнуляем хвост, чтобы новые записи не смешались с мусором
+            logger.warn("Truncating torn journal record in {} at offset {}", file, position);
+            segment.buffer.put(position, new byte[segmentSize - position]);
+            segment.buffer.force();
+        }
+        segment.position = position;
+        segment.sealedEnd = position;
+        segments.add(segment);
+        return pending;
+    }
+
+    // Курсор воспроизведения встаёт на первую запись после уже применённых
+    private void skipApplied(long appliedSeq) {
+        readSegment = segments.get(0);
+        readPosition = SEGMENT_HEADER_BYTES;
+        while (true) {
+            int end = readSegment == current ? current.position : readSegment.sealedEnd;
+            if (readPosition >= end) {
+                if (readSegment == current) {
+                    break;
+                }
+                readSegment = segments.get(segments.indexOf(readSegment) + 1);
+                readPosition = SEGMENT_HEADER_BYTES;
+                continue;
+            }
+            Record record = readRecord(readSegment.buffer, readPosition, end);
+            if (record == null || record.history.getJournalSeq() > appliedSeq) {
+                break;
+            }
+            readPosition = record.next;
+        }
+    }
+
+    private void roll() {
+        Segment sealed = current;
+        sealed.buffer.force();
+        Segment next = createSegment(nextSeq);
+        segments.add(next);
+        current = next;
+        // Читатель переходит к следующему сегменту, только увидев sealedEnd, поэтому он ставится последним
+        sealed.sealedEnd = sealed.position;
+    }
+
+    private Segment createSegment(long firstSeq) {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(firstSeq).flip();
+                channel.write(header);
+                channel.write(ByteBuffer.allocate(1), segmentSize - 1);
+                channel.force(true);
+            }
+            // Без fsync каталога запись о новом файле может пропасть при сбое питания вместе
+            // с уже подтверждёнными в нём записями
+            syncDirectory();
+            Segment segment = mapSegment(file);
+            segment.position = SEGMENT_HEADER_BYTES;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create journal segment " + file, e);
+        }
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private Segment mapSegment(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() != segmentSize) {
+            channel.close();
+            throw new IllegalStateException("Journal segment " + file + " has size " + Files.size(file)
+                    + ", expected " + segmentSize);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            channel.close();
+            throw new IllegalStateException("Not a conversion journal segment: " + file);
+        }
+        return new Segment(file, channel, buffer);
+    }
+
+    private static Record readRecord(ByteBuffer buffer, int position, int end) {
+        if (position + RECORD_HEADER_BYTES > end) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length < Long.BYTES || position + RECORD_HEADER_BYTES + length > end) {
+            return null;
+        }
+        ByteBuffer record = buffer.slice(position + RECORD_HEADER_BYTES, length);
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+            return null;
+        }
+        return new Record(decode(record), position + RECORD_HEADER_BYTES + length);
+    }
+
+    private static byte[] encode(ConversionHistory history) {
+        byte[] from = utf8(history.getFromCurrency());
+        byte[] to = utf8(history.getToCurrency());
+        byte[] notes = utf8(history.getNotes());
+        byte[] status = utf8(history.getStatus());
+        LocalDateTime convertedAt = history.getConvertedAt();
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_PAYLOAD_BYTES + from.length + to.length
+                + (notes != null ? notes.length : 0) + (status != null ? status.length : 0));
+        buffer.put(flagsOf(history));
+        buffer.putLong(history.getUser().getId());
+        buffer.putLong(convertedAt.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(convertedAt.getNano());
+        buffer.putDouble(history.getAmount());
+        buffer.putDouble(history.getConvertedAmount());
+        buffer.putLong(Objects.requireNonNullElse(history.getRateSnapshotId(), 0L));
+        buffer.putDouble(Objects.requireNonNullElse(history.getFromRate(), 0.0));
+        buffer.putDouble(Objects.requireNonNullElse(history.getToRate(), 0.0));
+        putString(buffer, from);
+        putString(buffer, to);
+        putString(buffer, notes);
+        putString(buffer, status);
+        return buffer.array();
+    }
+
+    private static byte flagsOf(ConversionHistory history) {
+        byte flags = 0;
+        flags |= history.getNotes() != null ? HAS_NOTES : 0;
+        flags |= history.getStatus() != null ? HAS_STATUS : 0;
+        flags |= history.getRateSnapshotId() != null ? HAS_SNAPSHOT : 0;
+        flags |= history.getFromRate() != null ? HAS_FROM_RATE : 0;
+        flags |= history.getToRate() != null ? HAS_TO_RATE : 0;
+        return flags;
+    }
+
+    private static ConversionHistory decode(ByteBuffer buffer) {
+        ConversionHistory history = new ConversionHistory();
+        history.setJournalSeq(buffer.getLong());
+        byte flags = buffer.get();
+        User user = new User();
+        user.setId(buffer.getLong());
+        history.setUser(user);
+        long epochSecond = buffer.getLong();
+        history.setConvertedAt(LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC));
+        history.setAmount(buffer.getDouble());
+        history.setConvertedAmount(buffer.getDouble());
+        long snapshotId = buffer.getLong();
+        double fromRate = buffer.getDouble();
+        double toRate = buffer.getDouble();
+        history.setRateSnapshotId((flags & HAS_SNAPSHOT) != 0 ? snapshotId : null);
+        history.setFromRate((flags & HAS_FROM_RATE) != 0 ? fromRate : null);
+        history.setToRate((flags & HAS_TO_RATE) != 0 ? toRate : null);
+        history.setFromCurrency(getString(buffer));
+        history.setToCurrency(getString(buffer));
+        history.setNotes(getString(buffer));
+        history.setStatus(getString(buffer));
+        return history;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        if (value.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Conversion history field is too long for the journal");
+        }
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private volatile long lastSeq;
+        // -1, пока в сегмент пишут; после смены сегмента — окончательная граница записей
+        private volatile int sealedEnd = -1;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private record DurablePoint(Segment segment, int position, long seq) {
+    }
+
+    private record Record(ConversionHistory history, int next) {
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.dto.RollupBucket;
+import com.example.currency4.dto.RollupTotal;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.model.RollupDimension;
+import com.example.currency4.model.RollupGranularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+public class ConversionRollupRepository {
+
+    private static final String INSERT_DELTA_SQL = """
+            INSERT INTO conversion_rollup_delta (granularity, dimension, dimension_key, bucket_start,
+                conversion_count, total_amount, total_converted_amount, min_converted_amount,
+                max_converted_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String SUBTRACT_USER_SQL = """
+            INSERT INTO conversion_rollup_delta (granularity, dimension, dimension_key, bucket_start,
+                conversion_count, total_amount, total_converted_amount)
+            SELECT ?, ?, %s, date_trunc('%s', converted_at), -count(*), -sum(amount), -sum(converted_amount)
+            FROM conversion_history
+            WHERE user_id = ? AND %s
+            GROUP BY 3, 4
+            """;
+
+    // Старейшие вклады; SKIP LOCKED не даёт двум экземплярам приложения свернуть одно и то же
+    private static final String TAKE_DELTAS_SQL = """
+            DELETE FROM conversion_rollup_delta
+            WHERE id IN (SELECT id FROM conversion_rollup_delta ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING granularity, dimension, dimension_key, bucket_start, conversion_count, total_amount,
+                total_converted_amount, min_converted_amount, max_converted_amount
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO conversion_rollup (granularity, dimension, dimension_key, bucket_start,
+                conversion_count, total_amount, total_converted_amount, min_converted_amount,
+                max_converted_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, dimension, dimension_key, bucket_start) DO UPDATE
+            SET conversion_count = conversion_rollup.conversion_count + EXCLUDED.conversion_count,
+                total_amount = conversion_rollup.total_amount + EXCLUDED.total_amount,
+                total_converted_amount = conversion_rollup.total_converted_amount
+                    + EXCLUDED.total_converted_amount,
+                min_converted_amount = LEAST(conversion_rollup.min_converted_amount,
+                    EXCLUDED.min_converted_amount),
+                max_converted_amount = GREATEST(conversion_rollup.max_converted_amount,
+                    EXCLUDED.max_converted_amount)
+            """;
+
+    private static final String BUCKET_CONDITION =
+            "granularity = ? AND dimension = ? AND dimension_key = ? AND bucket_start = ?";
+
+    private static final String REBUILD_SQL = """
+            INSERT INTO conversion_rollup (granularity, dimension, dimension_key, bucket_start,
+                conversion_count, total_amount, total_converted_amount, min_converted_amount,
+                max_converted_amount)
+            SELECT ?, ?, %s, date_trunc('%s', converted_at), count(*), sum(amount), sum(converted_amount),
+                   min(converted_amount), max(converted_amount)
+            FROM conversion_history
+            WHERE converted_at >= ? AND converted_at < ? AND %s
+            GROUP BY 3, 4
+            """;
+
+    private static final String REBUILD_BUCKET_SQL = """
+            INSERT INTO conversion_rollup (granularity, dimension, dimension_key, bucket_start,
+                conversion_count, total_amount, total_converted_amount, min_converted_amount,
+                max_converted_amount)
+            SELECT ?, ?, ?, ?, count(*), sum(amount), sum(converted_amount),
+                   min(converted_amount), max(converted_amount)
+            FROM conversion_history
+            WHERE converted_at >= ? AND converted_at < ? AND %s AND %s = ?
+            HAVING count(*) > 0
+            """;
+
+    private static final String SELECT_BUCKETS_SQL = """
+            SELECT bucket_start, conversion_count, total_amount, total_converted_amount,
+                   min_converted_amount, max_converted_amount
+            FROM conversion_rollup
+            WHERE granularity = ? AND dimension = ? AND dimension_key = ?
+              AND bucket_start >= ? AND bucket_start < ?
+            ORDER BY bucket_start
+            """;
+
+    private static final String SELECT_TOTALS_SQL = """
+            SELECT dimension_key, sum(conversion_count) AS conversion_count,
+                   sum(total_amount) AS total_amount,
+                   sum(total_converted_amount) AS total_converted_amount,
+                   min(min_converted_amount) AS min_converted_amount,
+                   max(max_converted_amount) AS max_converted_amount
+            FROM conversion_rollup
+            WHERE granularity = ? AND dimension = ? AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY dimension_key
+            ORDER BY sum(total_amount) DESC
+            """;
+
+    private static final Comparator<BucketKey> KEY_ORDER = Comparator
+            .comparing(BucketKey::granularity)
+            .thenComparing(BucketKey::dimension)
+            .thenComparing(BucketKey::key)
+            .thenComparing(BucketKey::bucketStart);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ConversionRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Вклад новых строк истории; вызывается в транзакции вставки, чтобы вклад и строка
+    // фиксировались вместе. Пакет сворачивается в памяти: одна строка на корзину, а не на конвертацию
+    public void addAll(List<ConversionHistory> histories) {
+        insertDeltas(fold(histories), false);
+    }
+
+    // Вычитание строк перед правкой или удалением; min/max по нему не вычислить, поэтому такие
+    // корзины при свёртке пересчитываются по истории
+    public void subtractAll(List<ConversionHistory> histories) {
+        insertDeltas(fold(histories), true);
+    }
+
+    // Вычитание всей истории пользователя перед её каскадным удалением
+    public void subtractUser(Long userId) {
+        for (RollupDimension dimension : RollupDimension.values()) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                String sql = SUBTRACT_USER_SQL.formatted(dimension.getKeyExpression(),
+                        granularity.getSqlUnit(), dimension.getPresentCondition());
+                jdbcTemplate.update(sql, granularity.name(), dimension.name(), userId);
+            }
+        }
+    }
+
+    // Переносит до maxDeltas вкладов в conversion_rollup и возвращает их число. Снимок REPEATABLE READ
+    // согласован: строка истории и её вклад фиксируются одной транзакцией, поэтому пересчёт корзины
+    // видит ровно те строки, чьи вклады он удаляет, а не видимые ещё вклады свернутся позже
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int compact(int maxDeltas) {
+        Map<BucketKey, Accumulator> buckets = new TreeMap<>(KEY_ORDER);
+        int[] taken = new int[1];
+        jdbcTemplate.query(TAKE_DELTAS_SQL, rs -> {
+            taken[0]++;
+            BucketKey key = new BucketKey(RollupGranularity.valueOf(rs.getString("granularity")),
+                    RollupDimension.valueOf(rs.getString("dimension")), rs.getString("dimension_key"),
+                    rs.getTimestamp("bucket_start").toLocalDateTime());
+            Accumulator delta = buckets.computeIfAbsent(key, k -> new Accumulator());
+            double min = rs.getDouble("min_converted_amount");
+            if (rs.wasNull()) {
+                delta.subtract(rs.getLong("conversion_count"), rs.getDouble("total_amount"),
+                        rs.getDouble("total_converted_amount"));
+            } else {
+                delta.merge(rs.getLong("conversion_count"), rs.getDouble("total_amount"),
+                        rs.getDouble("total_converted_amount"), min, rs.getDouble("max_converted_amount"));
+            }
+        }, maxDeltas);
+
+        List<Map.Entry<BucketKey, Accumulator>> additions = new ArrayList<>();
+        for (Map.Entry<BucketKey, Accumulator> bucket : buckets.entrySet()) {
+            if (bucket.getValue().retracted) {
+                rebuildBucket(bucket.getKey());
+            } else {
+                additions.add(bucket);
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, additions, additions.size(), (ps, row) -> {
+            int column = bindKey(ps, row.getKey());
+            Accumulator totals = row.getValue();
+            ps.setLong(column++, totals.count);
+            ps.setDouble(column++, totals.totalAmount);
+            ps.setDouble(column++, totals.totalConvertedAmount);
+            ps.setDouble(column++, totals.minConvertedAmount);
+            ps.setDouble(column, totals.maxConvertedAmount);
+        });
+        return taken[0];
+    }
+
+    // Границы должны совпадать с началом суток, иначе часть корзины будет пересчитана не полностью.
+    // Вклады из того же снимка удаляются вместе с агрегатами, более поздние свернутся поверх пересчёта
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuild(LocalDateTime from, LocalDateTime to) {
+        Timestamp start = Timestamp.valueOf(from);
+        Timestamp end = Timestamp.valueOf(to);
+        String range = " WHERE bucket_start >= ? AND bucket_start < ?";
+        jdbcTemplate.update("DELETE FROM conversion_rollup_delta" + range, start, end);
+        jdbcTemplate.update("DELETE FROM conversion_rollup" + range, start, end);
+        int inserted = 0;
+        for (RollupDimension dimension : RollupDimension.values()) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                String sql = REBUILD_SQL.formatted(dimension.getKeyExpression(), granularity.getSqlUnit(),
+                        dimension.getPresentCondition());
+                inserted += jdbcTemplate.update(sql, granularity.name(), dimension.name(), start, end);
+            }
+        }
+        return inserted;
+    }
+
+    public long countPendingDeltas() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM conversion_rollup_delta", Long.class);
+        return count != null ? count : 0;
+    }
+
+    public List<RollupBucket> findBuckets(RollupGranularity granularity, RollupDimension dimension,
+                                          String key, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(SELECT_BUCKETS_SQL,
+                (rs, rowNum) -> new RollupBucket(rs.getTimestamp("bucket_start").toLocalDateTime(),
+                        rs.getLong("conversion_count"), rs.getDouble("total_amount"),
+                        rs.getDouble("total_converted_amount"), rs.getDouble("min_converted_amount"),
+                        rs.getDouble("max_converted_amount")),
+                granularity.name(), dimension.name(), key, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public List<RollupTotal> findTotals(RollupGranularity granularity, RollupDimension dimension,
+                                        LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(SELECT_TOTALS_SQL,
+                (rs, rowNum) -> new RollupTotal(rs.getString("dimension_key"), rs.getLong("conversion_count"),
+                        rs.getDouble("total_amount"), rs.getDouble("total_converted_amount"),
+                        rs.getDouble("min_converted_amount"), rs.getDouble("max_converted_amount")),
+                granularity.name(), dimension.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private void rebuildBucket(BucketKey key) {
+        Object[] bucket = {key.granularity().name(), key.dimension().name(), key.key(),
+                Timestamp.valueOf(key.bucketStart())};
+        jdbcTemplate.update("DELETE FROM conversion_rollup_delta WHERE " + BUCKET_CONDITION, bucket);
+        jdbcTemplate.update("DELETE FROM conversion_rollup WHERE " + BUCKET_CONDITION, bucket);
+        LocalDateTime end = key.bucketStart().plus(1, key.granularity().getUnit());
+        String sql = REBUILD_BUCKET_SQL.formatted(key.dimension().getPresentCondition(),
+                key.dimension().getKeyExpression());
+        jdbcTemplate.update(sql, key.granularity().name(), key.dimension().name(), key.key(),
+                Timestamp.valueOf(key.bucketStart()), Timestamp.valueOf(key.bucketStart()),
+                Timestamp.valueOf(end), key.key());
+    }
+
+    private void insertDeltas(Map<BucketKey, Accumulator> buckets, boolean negate) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        int sign = negate ? -1 : 1;
+        List<Map.Entry<BucketKey, Accumulator>> rows = new ArrayList<>(buckets.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_DELTA_SQL, rows, rows.size(), (ps, row) -> {
+            int column = bindKey(ps, row.getKey());
+            Accumulator totals = row.getValue();
+            ps.setLong(column++, sign * totals.count);
+            ps.setDouble(column++, sign * totals.totalAmount);
+            ps.setDouble(column++, sign * totals.totalConvertedAmount);
+            ps.setObject(column++, negate ? null : totals.minConvertedAmount, Types.DOUBLE);
+            ps.setObject(column, negate ? null : totals.maxConvertedAmount, Types.DOUBLE);
+        });
+    }
+
+    // Возвращает номер следующего параметра
+    private static int bindKey(PreparedStatement ps, BucketKey key) throws SQLException {
+        int column = 1;
+        ps.setString(column++, key.granularity().name());
+        ps.setString(column++, key.dimension().name());
+        ps.setString(column++, key.key());
+        ps.setTimestamp(column++, Timestamp.valueOf(key.bucketStart()));
+        return column;
+    }
+
+    // Постоянный порядок ключей исключает взаимные блокировки между параллельными пакетами
+    private static Map<BucketKey, Accumulator> fold(List<ConversionHistory> histories) {
+        Map<BucketKey, Accumulator> buckets = new TreeMap<>(KEY_ORDER);
+        for (ConversionHistory history : histories) {
+            for (RollupDimension dimension : RollupDimension.values()) {
+                String key = dimension.keyOf(history);
+                if (key == null) {
+                    continue;
+                }
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    buckets.computeIfAbsent(new BucketKey(granularity, dimension, key,
+                                    granularity.bucketOf(history.getConvertedAt())), k -> new Accumulator())
+                            .add(history.getAmount(), history.getConvertedAmount());
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private record BucketKey(RollupGranularity granularity, RollupDimension dimension, String key,
+                             LocalDateTime bucketStart) {
+    }
+
+    private static final class Accumulator {
+
+        private long count;
+        private double totalAmount;
+        private double totalConvertedAmount;
+        private double minConvertedAmount = Double.POSITIVE_INFINITY;
+        private double maxConvertedAmount = Double.NEGATIVE_INFINITY;
+        // Среди вкладов есть вычитание: min/max корзины нужно пересчитать
+        private boolean retracted;
+
+        void add(double amount, double convertedAmount) {
+            merge(1, amount, convertedAmount, convertedAmount, convertedAmount);
+        }
+
+        void merge(long count, double amount, double convertedAmount, double min, double max) {
+            this.count += count;
+            totalAmount += amount;
+            totalConvertedAmount += convertedAmount;
+            minConvertedAmount = Math.min(minConvertedAmount, min);
+            maxConvertedAmount = Math.max(maxConvertedAmount, max);
+        }
+
+        void subtract(long count, double amount, double convertedAmount) {
+            this.count += count;
+            totalAmount += amount;
+            totalConvertedAmount += convertedAmount;
+            retracted = true;
+        }
+    }
+}
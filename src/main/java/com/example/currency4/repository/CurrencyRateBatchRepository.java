@@ -0,0 +1,59 @@
+package com.example.currency4.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public class CurrencyRateBatchRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO currency_rate (currency_code, rate, last_updated, source)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (currency_code) DO UPDATE
+            SET rate = EXCLUDED.rate, last_updated = EXCLUDED.last_updated, source = EXCLUDED.source
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CurrencyRateBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Map<String, Double> findAllRates() {
+        Map<String, Double> rates = new HashMap<>();
+        jdbcTemplate.query("SELECT currency_code, rate FROM currency_rate",
+                (RowCallbackHandler) rs -> rates.put(rs.getString("currency_code"), rs.getDouble("rate")));
+        return rates;
+    }
+
+    public Optional<Instant> findLastUpdated() {
+        Timestamp lastUpdated = jdbcTemplate.queryForObject("SELECT max(last_updated) FROM currency_rate",
+                Timestamp.class);
+        return Optional.ofNullable(lastUpdated).map(Timestamp::toInstant);
+    }
+
+    @Transactional
+    public void upsertAll(List<Map.Entry<String, Double>> rates, String source) {
+        if (rates.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rates, rates.size(), (ps, entry) -> {
+            int column = 1;
+            ps.setString(column++, entry.getKey());
+            ps.setDouble(column++, entry.getValue());
+            ps.setTimestamp(column++, now);
+            ps.setString(column, source);
+        });
+    }
+}
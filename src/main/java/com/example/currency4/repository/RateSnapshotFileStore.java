@@ -0,0 +1,160 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.model.RateTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+// Формат (big-endian): magic "CRSN", версия формата, версия снимка, fetchedAt в мс, база,
+// число валют, коды (длина + ASCII), курсы (double), CRC32 всего предыдущего содержимого
+@Repository
+public class RateSnapshotFileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateSnapshotFileStore.class);
+
+    private static final int MAGIC = 0x4352534E;
+    private static final short FORMAT_VERSION = 1;
+    private static final int MAX_CODE_LENGTH = 255;
+
+    private final Path file;
+
+    public RateSnapshotFileStore(
+            @Value("${currency.rates.warm-start.file:data/rate-snapshot.bin}") Path file) {
+        this.file = file.toAbsolutePath();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Отображает файл в память; повреждённый или чужой файл не мешает старту, а просто игнорируется
+    public Optional<RateSnapshot> read() {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(decode(buffer));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable rate snapshot file {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Пишется во временный файл и переименовывается, чтобы читатель не увидел недописанный снимок
+    public void write(RateSnapshot snapshot) {
+        ByteBuffer buffer = encode(snapshot);
+        try {
+            Path directory = file.getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write rate snapshot file " + file, e);
+        }
+    }
+
+    static ByteBuffer encode(RateSnapshot snapshot) {
+        RateTable table = snapshot.getTable();
+        byte[] base = snapshot.getBase().getBytes(StandardCharsets.US_ASCII);
+        byte[][] codes = new byte[table.size()][];
+        int size = Integer.BYTES + Short.BYTES + Long.BYTES + Long.BYTES + Short.BYTES + base.length
+                + Integer.BYTES + table.size() * Double.BYTES + Integer.BYTES;
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = table.codeAt(i).getBytes(StandardCharsets.US_ASCII);
+            if (codes[i].length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Currency code is too long: " + table.codeAt(i));
+            }
+            size += 1 + codes[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(FORMAT_VERSION);
+        buffer.putLong(snapshot.getVersion());
+        buffer.putLong(snapshot.getFetchedAt().toEpochMilli());
+        buffer.putShort((short) base.length);
+        buffer.put(base);
+        buffer.putInt(codes.length);
+        for (byte[] code : codes) {
+            buffer.put((byte) code.length);
+            buffer.put(code);
+        }
+        for (int i = 0; i < codes.length; i++) {
+            buffer.putDouble(table.rateAt(i));
+        }
+        buffer.putInt((int) checksum(buffer, buffer.position()));
+        return buffer.flip();
+    }
+
+    static RateSnapshot decode(ByteBuffer buffer) {
+        int payloadLength = buffer.limit() - Integer.BYTES;
+        if (payloadLength < 0 || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a rate snapshot file");
+        }
+        if (checksum(buffer, payloadLength) != Integer.toUnsignedLong(buffer.getInt(payloadLength))) {
+            throw new IllegalStateException("Checksum mismatch");
+        }
+        buffer.position(Integer.BYTES);
+        short formatVersion = buffer.getShort();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported format version " + formatVersion);
+        }
+        long version = buffer.getLong();
+        Instant fetchedAt = Instant.ofEpochMilli(buffer.getLong());
+        String base = readAscii(buffer, buffer.getShort());
+        int count = buffer.getInt();
+        String[] codes = new String[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = readAscii(buffer, Byte.toUnsignedInt(buffer.get()));
+        }
+        Map<String, Double> rates = HashMap.newHashMap(count);
+        for (int i = 0; i < count; i++) {
+            rates.put(codes[i], buffer.getDouble());
+        }
+        return new RateSnapshot(version, fetchedAt, base, rates);
+    }
+
+    private static String readAscii(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return crc.getValue();
+    }
+}
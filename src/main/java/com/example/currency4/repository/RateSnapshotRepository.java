@@ -0,0 +1,118 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.model.RateSnapshot;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public class RateSnapshotRepository {
+
+    private static final String INSERT_SNAPSHOT_SQL =
+            "INSERT INTO rate_snapshot (base, source, fetched_at) VALUES (?, ?, ?)";
+
+    private static final String INSERT_ENTRY_SQL =
+            "INSERT INTO rate_snapshot_entry (snapshot_id, currency_code, rate) VALUES (?, ?, ?)";
+
+    // Снимки с начала окна плюс последний снимок до него: он задаёт курс на границе окна
+    private static final String SELECT_HISTORY_SQL = """
+            SELECT e.currency_code, s.fetched_at, e.rate
+            FROM rate_snapshot s JOIN rate_snapshot_entry e ON e.snapshot_id = s.id
+            WHERE s.fetched_at >= COALESCE(
+                (SELECT max(fetched_at) FROM rate_snapshot WHERE fetched_at <= ?), ?)
+            ORDER BY s.fetched_at, s.id
+            """;
+
+    private static final int HISTORY_FETCH_SIZE = 5000;
+
+    public interface RatePointHandler {
+        void accept(String currencyCode, long timestamp, double rate);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RateSnapshotRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public long insert(String base, String source, Instant fetchedAt, Map<String, Double> rates) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SNAPSHOT_SQL, new String[] {"id"});
+            int column = 1;
+            ps.setString(column++, base);
+            ps.setString(column++, source);
+            ps.setTimestamp(column, Timestamp.from(fetchedAt));
+            return ps;
+        }, keyHolder);
+        long snapshotId = keyHolder.getKey().longValue();
+
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(rates.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entries, entries.size(), (ps, entry) -> {
+            int column = 1;
+            ps.setLong(column++, snapshotId);
+            ps.setString(column++, entry.getKey());
+            ps.setDouble(column, entry.getValue());
+        });
+        return snapshotId;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<RateSnapshot> findById(long id) {
+        List<RateSnapshot> headers = jdbcTemplate.query(
+                "SELECT id, base, fetched_at FROM rate_snapshot WHERE id = ?",
+                (rs, rowNum) -> new RateSnapshot(rs.getLong("id"), rs.getTimestamp("fetched_at").toInstant(),
+                        rs.getString("base"), findEntries(id)),
+                id);
+        return headers.stream().findFirst();
+    }
+
+    public boolean exists(long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM rate_snapshot WHERE id = ?)", Boolean.class, id));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<RateSnapshot> findLatest() {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM rate_snapshot ORDER BY fetched_at DESC, id DESC LIMIT 1", Long.class);
+        return ids.stream().findFirst().flatMap(this::findById);
+    }
+
+    // Курсор PostgreSQL с fetch size работает только внутри транзакции
+    @Transactional(readOnly = true)
+    public void forEachRatePointSince(Instant since, RatePointHandler handler) {
+        Timestamp from = Timestamp.from(since);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_HISTORY_SQL);
+            ps.setFetchSize(HISTORY_FETCH_SIZE);
+            // Один и тот же момент задаёт и поиск последнего снимка до окна, и запасную границу
+            int column = 1;
+            ps.setTimestamp(column++, from);
+            ps.setTimestamp(column, from);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.accept(rs.getString("currency_code"),
+                rs.getTimestamp("fetched_at").getTime(), rs.getDouble("rate")));
+    }
+
+    private Map<String, Double> findEntries(long snapshotId) {
+        Map<String, Double> rates = new HashMap<>();
+        jdbcTemplate.query("SELECT currency_code, rate FROM rate_snapshot_entry WHERE snapshot_id = ?",
+                (RowCallbackHandler) rs -> rates.put(rs.getString("currency_code"), rs.getDouble("rate")),
+                snapshotId);
+        return rates;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.currency4.service;
+
+import com.example.currency4.dto.BatchConvertResult;
+import com.example.currency4.dto.ConvertRequest;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.model.RateTable;
+import com.example.currency4.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class BatchConversionService {
+
+    private final CurrencyService currencyService;
+    private final RateSnapshotService rateSnapshotService;
+    private final ConversionHistoryWriter conversionHistoryWriter;
+    private final UserRepository userRepository;
+    private final Validator validator;
+    private final int maxBatchSize;
+
+    public BatchConversionService(CurrencyService currencyService, RateSnapshotService rateSnapshotService,
+                                  ConversionHistoryWriter conversionHistoryWriter,
+                                  UserRepository userRepository, Validator validator,
+                                  @Value("${currency.convert.batch.max-size:10000}") int maxBatchSize) {
+        this.currencyService = currencyService;
+        this.rateSnapshotService = rateSnapshotService;
+        this.conversionHistoryWriter = conversionHistoryWriter;
+        this.userRepository = userRepository;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // Без общей транзакции: запись в режиме write-behind может ждать места в очереди,
+    // и соединение с БД на это время не удерживается
+    public List<BatchConvertResult> convertAll(List<ConvertRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one conversion");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size must not exceed " + maxBatchSize);
+        }
+
+        // Один снимок курсов и один пользователь на весь пакет
+        RateSnapshot snapshot = rateSnapshotService.getSnapshot();
+        RateTable rates = snapshot.getTable();
+        User user = userRepository.findById(1L)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        List<BatchConvertResult> results = new ArrayList<>(requests.size());
+        List<ConversionHistory> histories = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ConvertRequest request = requests.get(i);
+            String error = validate(request);
+            if (error != null) {
+                results.add(BatchConvertResult.failed(i, request, error));
+                continue;
+            }
+
+            int fromIndex = rates.indexOf(request.getFrom());
+            int toIndex = rates.indexOf(request.getTo());
+            // В отличие от одиночной конвертации, неизвестная валюта не пересчитывается по курсу 1.0:
+            // такой элемент отклоняется и не сохраняется, остальные элементы пакета пишутся
+            if (fromIndex == RateTable.UNKNOWN || toIndex == RateTable.UNKNOWN) {
+                String unknown = fromIndex == RateTable.UNKNOWN ? request.getFrom() : request.getTo();
+                results.add(BatchConvertResult.failed(i, request, "Unknown currency: " + unknown));
+                continue;
+            }
+            double convertedAmount = currencyService.convertAmount(fromIndex, toIndex,
+                    request.getAmount(), rates);
+            String from = rates.codeOf(fromIndex, request.getFrom());
+            String to = rates.codeOf(toIndex, request.getTo());
+
+            ConversionHistory conversionHistory = new ConversionHistory(from, to, request.getAmount(),
+                    convertedAmount, user);
+            conversionHistory.setNotes("Batch conversion");
+            conversionHistory.setRateSnapshotId(snapshot.getVersion());
+            conversionHistory.setFromRate(rates.rateAt(fromIndex));
+            conversionHistory.setToRate(rates.rateAt(toIndex));
+            histories.add(conversionHistory);
+            results.add(BatchConvertResult.completed(i, from, to, request.getAmount(), convertedAmount));
+        }
+
+        // Пакет пишется тем же способом, что и одиночные конвертации (currency.history.write-mode)
+        conversionHistoryWriter.writeAll(histories);
+        return results;
+    }
+
+    // Те же ограничения, что у одиночного запроса; все нарушения элемента перечисляются вместе
+    private String validate(ConvertRequest request) {
+        if (request == null) {
+            return "Conversion request must not be null";
+        }
+        Set<ConstraintViolation<ConvertRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
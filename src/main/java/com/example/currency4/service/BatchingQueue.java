@@ -0,0 +1,107 @@
+package com.example.currency4.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ограниченная очередь, в которую пакет попадает целиком или не попадает совсем. Пополняется только
+// под блокировкой, поэтому проверенное место не займёт другой поток; после close ничего не добавится
+final class BatchingQueue<E> {
+
+    private final ArrayBlockingQueue<E> queue;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private boolean closed;
+
+    BatchingQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    // Ждёт места не дольше waitNanos; false — места не хватило или очередь закрыта
+    boolean offerAll(List<E> elements, long waitNanos) {
+        lock.lock();
+        try {
+            long remaining = waitNanos;
+            while (!closed && queue.remainingCapacity() < elements.size()) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            return !closed && queue.addAll(elements);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E element = queue.poll(timeout, unit);
+        if (element != null) {
+            signalNotFull();
+        }
+        return element;
+    }
+
+    int drainTo(Collection<? super E> target, int maxElements) {
+        int drained = queue.drainTo(target, maxElements);
+        if (drained > 0) {
+            signalNotFull();
+        }
+        return drained;
+    }
+
+    List<E> drainAll() {
+        List<E> drained = new ArrayList<>(queue.size());
+        queue.drainTo(drained);
+        return drained;
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalNotFull() {
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
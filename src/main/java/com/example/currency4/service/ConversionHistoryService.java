@@ -1,13 +1,17 @@
 package com.example.currency4.service;
 
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.dto.ConversionHistoryView;
 import com.example.currency4.entity.ConversionHistory;
-import com.example.currency4.entity.CurrencyRate;
 import com.example.currency4.repository.ConversionHistoryRepository;
+import com.example.currency4.repository.ConversionHistoryViewRepository;
+import com.example.currency4.repository.ConversionRollupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,37 +24,42 @@ public class ConversionHistoryService {
     private ConversionHistoryRepository conversionHistoryRepository;
 
     @Autowired
-    private UserService userService;
+    private HistoryQueryCache historyQueryCache;
 
     @Autowired
-    private CurrencyRateService currencyRateService;
+    private ConversionHistoryViewRepository conversionHistoryViewRepository;
 
-    @Cacheable(value = "conversionHistoryCache")
-    public List<ConversionHistory> getAllConversionHistories() {
-        List<ConversionHistory> histories = conversionHistoryRepository.findAll();
-        // Предварительная загрузка связанных сущностей в кэш
-        histories.forEach(this::cacheRelatedEntities);
-        return histories;
+    @Autowired
+    private ConversionRollupRepository conversionRollupRepository;
+
+    public List<ConversionHistoryView> getAllConversionHistories() {
+        return conversionHistoryViewRepository.findAll();
     }
 
     @Cacheable(value = "conversionHistoryCache", key = "#id")
-    public Optional<ConversionHistory> getConversionHistoryById(Long id) {
-        Optional<ConversionHistory> history = conversionHistoryRepository.findById(id);
-        history.ifPresent(this::cacheRelatedEntities);
-        return history;
+    public Optional<ConversionHistoryView> getConversionHistoryById(Long id) {
+        return conversionHistoryViewRepository.findById(id);
     }
 
     @CachePut(value = "conversionHistoryCache", key = "#result.id")
-    public ConversionHistory createConversionHistory(ConversionHistory conversionHistory) {
+    @Transactional
+    public ConversionHistoryView createConversionHistory(ConversionHistory conversionHistory) {
         ConversionHistory savedHistory = conversionHistoryRepository.save(conversionHistory);
-        cacheRelatedEntities(savedHistory);
-        return savedHistory;
+        conversionRollupRepository.addAll(List.of(savedHistory));
+        historyQueryCache.invalidateAfterCommit(List.of(savedHistory));
+        return toView(savedHistory);
     }
 
     @CachePut(value = "conversionHistoryCache", key = "#id")
-    public ConversionHistory updateConversionHistory(Long id, ConversionHistory conversionHistoryDetails) {
+    @Transactional
+    public ConversionHistoryView updateConversionHistory(Long id,
+                                                         ConversionHistory conversionHistoryDetails) {
         ConversionHistory conversionHistory = conversionHistoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ConversionHistory not found with id: " + id));
+        // Старая пара валют тоже должна уйти из кэша выборок
+        historyQueryCache.invalidateAfterCommit(List.of(conversionHistory));
+        // Прежний вклад вычитается до изменения полей, новый добавляется после сохранения
+        conversionRollupRepository.subtractAll(List.of(conversionHistory));
         conversionHistory.setFromCurrency(conversionHistoryDetails.getFromCurrency());
         conversionHistory.setToCurrency(conversionHistoryDetails.getToCurrency());
         conversionHistory.setAmount(conversionHistoryDetails.getAmount());
@@ -59,42 +68,29 @@ public class ConversionHistoryService {
         conversionHistory.setNotes(conversionHistoryDetails.getNotes());
         conversionHistory.setStatus(conversionHistoryDetails.getStatus());
         conversionHistory.setUser(conversionHistoryDetails.getUser());
-        conversionHistory.setCurrencyRates(conversionHistoryDetails.getCurrencyRates());
-        ConversionHistory updatedHistory = conversionHistoryRepository.save(conversionHistory);
-        cacheRelatedEntities(updatedHistory);
-        return updatedHistory;
+        conversionHistory.setRateSnapshotId(conversionHistoryDetails.getRateSnapshotId());
+        conversionHistory.setFromRate(conversionHistoryDetails.getFromRate());
+        conversionHistory.setToRate(conversionHistoryDetails.getToRate());
+        ConversionHistory updatedHistory = conversionHistoryRepository.saveAndFlush(conversionHistory);
+        conversionRollupRepository.addAll(List.of(updatedHistory));
+        historyQueryCache.invalidateAfterCommit(List.of(updatedHistory));
+        return toView(updatedHistory);
     }
 
     @CacheEvict(value = "conversionHistoryCache", key = "#id")
+    @Transactional
     public void deleteConversionHistory(Long id) {
         ConversionHistory conversionHistory = conversionHistoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ConversionHistory not found with id: " + id));
-        // Очистка кэша связанных сущностей
-        evictRelatedEntities(conversionHistory);
         conversionHistoryRepository.delete(conversionHistory);
+        conversionHistoryRepository.flush();
+        conversionRollupRepository.subtractAll(List.of(conversionHistory));
+        historyQueryCache.invalidateAfterCommit(List.of(conversionHistory));
     }
 
-    private void cacheRelatedEntities(ConversionHistory conversionHistory) {
-        // Кэшируем пользователя
-        if (conversionHistory.getUser() != null) {
-            userService.getUserById(conversionHistory.getUser().getId());
-        }
-        // Кэшируем связанные CurrencyRate
-        if (conversionHistory.getCurrencyRates() != null) {
-            conversionHistory.getCurrencyRates().forEach(rate ->
-                    currencyRateService.getCurrencyRateByCode(rate.getCurrencyCode()));
-        }
-    }
-
-    private void evictRelatedEntities(ConversionHistory conversionHistory) {
-        // Очистка кэша пользователя
-        if (conversionHistory.getUser() != null) {
-            userService.deleteUser(conversionHistory.getUser().getId());
-        }
-        // Очистка кэша CurrencyRate
-        if (conversionHistory.getCurrencyRates() != null) {
-            conversionHistory.getCurrencyRates().forEach(rate ->
-                    currencyRateService.deleteCurrencyRate(rate.getCurrencyCode()));
-        }
+    private ConversionHistoryView toView(ConversionHistory conversionHistory) {
+        return conversionHistoryViewRepository.findById(conversionHistory.getId())
+                .orElseThrow(() -> new RuntimeException("ConversionHistory not found with id: "
+                        + conversionHistory.getId()));
     }
 }
\ No newline at end of file
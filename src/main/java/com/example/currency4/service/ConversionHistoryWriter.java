@@ -0,0 +1,14 @@
+package com.example.currency4.service;
+
+import com.example.currency4.entity.ConversionHistory;
+
+import java.util.List;
+
+public interface ConversionHistoryWriter {
+
+    void write(ConversionHistory conversionHistory);
+
+    default void writeAll(List<ConversionHistory> conversionHistories) {
+        conversionHistories.forEach(this::write);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.currency4.service;
+
+import com.example.currency4.dto.RollupBucket;
+import com.example.currency4.dto.RollupTotal;
+import com.example.currency4.model.RollupDimension;
+import com.example.currency4.model.RollupGranularity;
+import com.example.currency4.repository.ConversionRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class ConversionRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversionRollupService.class);
+    private static final LocalDate EARLIEST = LocalDate.of(1970, 1, 1);
+
+    private final ConversionRollupRepository conversionRollupRepository;
+    private final int defaultRangeDays;
+    private final int compactBatchSize;
+    // Свёртка и полный пересчёт в одном процессе не мешают друг другу ошибками сериализации
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    public ConversionRollupService(
+            ConversionRollupRepository conversionRollupRepository,
+            @Value("${currency.analytics.default-range-days:30}") int defaultRangeDays,
+            @Value("${currency.analytics.compact-batch-size:5000}") int compactBatchSize) {
+        this.conversionRollupRepository = conversionRollupRepository;
+        this.defaultRangeDays = defaultRangeDays;
+        this.compactBatchSize = compactBatchSize;
+    }
+
+    public List<RollupBucket> getPairBuckets(String fromCurrency, String toCurrency,
+                                             RollupGranularity granularity, LocalDateTime from,
+                                             LocalDateTime to) {
+        return getBuckets(RollupDimension.PAIR, RollupDimension.pairKey(fromCurrency, toCurrency),
+                granularity, from, to);
+    }
+
+    public List<RollupBucket> getUserBuckets(Long userId, RollupGranularity granularity, LocalDateTime from,
+                                             LocalDateTime to) {
+        return getBuckets(RollupDimension.USER, String.valueOf(userId), granularity, from, to);
+    }
+
+    public List<RollupTotal> getTotals(RollupDimension dimension, RollupGranularity granularity,
+                                       LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(defaultRangeDays);
+        validateRange(start, end);
+        return conversionRollupRepository.findTotals(granularity, dimension, start, end);
+    }
+
+    // Пересчитывает агрегаты по базовой таблице за целые сутки [from, to]; null — вся история
+    public int rebuild(LocalDate from, LocalDate to) {
+        LocalDate start = from != null ? from : EARLIEST;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Rebuild range end must not be before start");
+        }
+        int buckets;
+        maintenanceLock.lock();
+        try {
+            buckets = conversionRollupRepository.rebuild(start.atStartOfDay(),
+                    end.plusDays(1).atStartOfDay());
+        } finally {
+            maintenanceLock.unlock();
+        }
+        logger.info("Rebuilt conversion rollups for {}..{}: {} buckets", start, end, buckets);
+        return buckets;
+    }
+
+    // Вклады записей истории попадают в агрегаты с задержкой не больше интервала свёртки
+    @Scheduled(fixedDelayString = "${currency.analytics.compact-interval-ms:1000}")
+    public void compact() {
+        maintenanceLock.lock();
+        try {
+            int folded;
+            do {
+                folded = conversionRollupRepository.compact(compactBatchSize);
+            } while (folded == compactBatchSize);
+        } catch (RuntimeException e) {
+            // Вклады остаются в таблице и свернутся при следующем запуске
+            logger.warn("Conversion rollup compaction failed: {}", e.getMessage());
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private List<RollupBucket> getBuckets(RollupDimension dimension, String key,
+                                          RollupGranularity granularity, LocalDateTime from,
+                                          LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(defaultRangeDays);
+        validateRange(start, end);
+        return conversionRollupRepository.findBuckets(granularity, dimension, key, start, end);
+    }
+
+    private void validateRange(LocalDateTime start, LocalDateTime end) {
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("Range end must be after start");
+        }
+    }
+}
@@ -1,63 +1,138 @@
 package com.example.currency4.service;
 
-import com.example.currency4.entity.CurrencyRate;
+import com.example.currency4.cache.SingleFlight;
+import com.example.currency4.config.CircuitBreaker;
+import com.example.currency4.config.ConcurrencyLimiter;
+import com.example.currency4.exceptions.CircuitOpenException;
+import com.example.currency4.exceptions.RatesUnavailableException;
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import com.example.currency4.model.CircuitBreakerStats;
 import com.example.currency4.model.CurrencyResponse;
-import com.example.currency4.repository.CurrencyRateRepository;
+import com.example.currency4.model.RateIngestResult;
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.model.RateTable;
+import com.example.currency4.model.SingleFlightStats;
+import com.example.currency4.repository.CurrencyRateBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class CurrencyService {
 
-    private static final String API_URL = "https://openexchangerates.org/api/latest.json?app_id=";
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyService.class);
+    static final String RATE_SOURCE = "OpenExchangeRates";
+    private static final String LATEST_RATES = "latest";
+    private final String latestRatesUrl;
     private final String apiKey;
     private final RestTemplate restTemplate;
-    private final CurrencyRateRepository currencyRateRepository;
+    private final CurrencyRateBatchRepository currencyRateBatchRepository;
+    private final ConcurrencyLimiter upstreamLimiter;
+    private final CircuitBreaker upstreamCircuitBreaker;
+    private final SingleFlight<String, CurrencyResponse> fetchFlight;
 
-    public CurrencyService(RestTemplate restTemplate, CurrencyRateRepository currencyRateRepository,
-                           @Value("${open.exchange.api.key:}") String apiKey) {
+    public CurrencyService(RestTemplate restTemplate, CurrencyRateBatchRepository currencyRateBatchRepository,
+                           @Qualifier("upstreamConcurrencyLimiter") ConcurrencyLimiter upstreamLimiter,
+                           CircuitBreaker upstreamCircuitBreaker,
+                           @Value("${open.exchange.api.url:https://openexchangerates.org/api}") String apiUrl,
+                           @Value("${open.exchange.api.key:}") String apiKey,
+                           @Value("${currency.rates.fetch.wait-timeout-ms:10000}") long fetchWaitTimeoutMs) {
         this.restTemplate = restTemplate;
-        this.currencyRateRepository = currencyRateRepository;
+        this.currencyRateBatchRepository = currencyRateBatchRepository;
+        this.upstreamLimiter = upstreamLimiter;
+        this.upstreamCircuitBreaker = upstreamCircuitBreaker;
+        this.latestRatesUrl = apiUrl.replaceAll("/+$", "") + "/latest.json?app_id=";
         this.apiKey = apiKey;
+        this.fetchFlight = new SingleFlight<>("rate fetch", Duration.ofMillis(fetchWaitTimeoutMs));
     }
 
+    // Одновременные вызовы ждут уже идущую загрузку вместо того, чтобы повторять запрос и запись курсов
     public CurrencyResponse fetchExchangeRates() {
+        return fetchFlight.execute(LATEST_RATES, this::fetchLatestRates);
+    }
+
+    public SingleFlightStats getFetchStats() {
+        return fetchFlight.getStats();
+    }
+
+    public CircuitBreakerStats getCircuitBreakerStats() {
+        return upstreamCircuitBreaker.getStats();
+    }
+
+    private CurrencyResponse fetchLatestRates() {
         if (apiKey.isEmpty()) {
-            throw new RuntimeException("API key for Open Exchange Rates is not provided");
+            throw new RatesUnavailableException("API key for Open Exchange Rates is not provided");
         }
 
-        String fullApiUrl = API_URL + apiKey;
+        String fullApiUrl = latestRatesUrl + apiKey;
+        CurrencyResponse response;
         try {
-            CurrencyResponse response = restTemplate.getForObject(fullApiUrl, CurrencyResponse.class);
-            if (response == null || response.getRates() == null) {
-                throw new RuntimeException("Unable to fetch exchange rates: empty response");
-            }
+            // В цепь обёрнут только HTTP-вызов: ни ожидание разрешения лимитера,
+            // ни ошибки записи в БД ниже не должны её размыкать
+            response = upstreamLimiter.call(() -> upstreamCircuitBreaker.call(() -> {
+                CurrencyResponse body = restTemplate.getForObject(fullApiUrl, CurrencyResponse.class);
+                if (body == null || body.getRates() == null) {
+                    throw new RatesUnavailableException("Unable to fetch exchange rates: empty response");
+                }
+                return body;
+            }));
+        } catch (ServiceOverloadedException | RatesUnavailableException e) {
+            throw e;
+        } catch (CircuitOpenException e) {
+            throw new RatesUnavailableException("Open Exchange Rates is unavailable: " + e.getMessage(), e);
+        } catch (HttpStatusCodeException e) {
+            throw new RatesUnavailableException("Failed to fetch exchange rates: " + e.getStatusCode(), e);
+        } catch (RestClientException e) {
+            throw new RatesUnavailableException("Failed to fetch exchange rates: " + e.getMessage(), e);
+        }
 
-            Map<String, Double> rates = response.getRates();
-            for (Map.Entry<String, Double> entry : rates.entrySet()) {
-                String currency = entry.getKey();
-                Double rate = entry.getValue();
-                CurrencyRate currencyRate = new CurrencyRate(currency, rate);
-                currencyRateRepository.save(currencyRate);
-            }
+        RateIngestResult result = ingestRates(response.getRates());
+        logger.info("Persisted fetched rates: {}", result);
+        return response;
+    }
 
-            return response;
-        } catch (HttpClientErrorException e) {
-            throw new RuntimeException("Failed to fetch exchange rates: " + e.getStatusCode() + " - " + e.getResponseBodyAsString());
-        } catch (Exception e) {
-            throw new RuntimeException("Unexpected error while fetching exchange rates: " + e.getMessage());
+    public RateIngestResult ingestRates(Map<String, Double> rates) {
+        Map<String, Double> stored = currencyRateBatchRepository.findAllRates();
+        List<Map.Entry<String, Double>> changed = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            Double previous = stored.get(entry.getKey());
+            if (previous == null) {
+                inserted++;
+            } else if (Double.compare(previous, entry.getValue()) != 0) {
+                updated++;
+            } else {
+                continue;
+            }
+            changed.add(entry);
         }
+        currencyRateBatchRepository.upsertAll(changed, RATE_SOURCE);
+        return new RateIngestResult(inserted, updated, rates.size() - changed.size());
+    }
+
+    public double convertAmount(String from, String to, double amount, RateSnapshot rates) {
+        RateTable table = rates.getTable();
+        return convertAmount(table.indexOf(from), table.indexOf(to), amount, table);
+    }
+
+    public double convertAmount(int fromIndex, int toIndex, double amount, RateTable table) {
+        return (amount / table.rateAt(fromIndex)) * table.rateAt(toIndex);
     }
 
-    public double convertAmount(String from, String to, double amount, CurrencyResponse rates) {
-        Map<String, Double> rateMap = rates.getRates();
-        double fromRate = rateMap.getOrDefault(from.toUpperCase(), 1.0);
-        double toRate = rateMap.getOrDefault(to.toUpperCase(), 1.0);
-        return (amount / fromRate) * toRate;
+    public double[] convertToAll(int fromIndex, double amount, RateTable table) {
+        double[] converted = new double[table.size()];
+        table.getCrossRates().convertAll(fromIndex, amount, converted);
+        return converted;
     }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.example.currency4.service;
+
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.repository.ConversionHistoryRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+@Service
+public class HistoryExportService {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value
+                        + " (use ndjson or csv)");
+            }
+        }
+    }
+
+    private static final int FLUSH_EVERY = 500;
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final String CSV_HEADER =
+            "id,fromCurrency,toCurrency,amount,convertedAmount,convertedAt,status,userId,"
+            + "rateSnapshotId,fromRate,toRate,notes\n";
+
+    private final ConversionHistoryRepository conversionHistoryRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public HistoryExportService(ConversionHistoryRepository conversionHistoryRepository,
+                                EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper) {
+        this.conversionHistoryRepository = conversionHistoryRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void export(Format format, LocalDateTime from, LocalDateTime to, OutputStream out) {
+        // Курсор PostgreSQL с fetch size работает только внутри транзакции
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ConversionHistory> rows = openStream(from, to)) {
+                if (format == Format.CSV) {
+                    writeCsv(rows, out);
+                } else {
+                    writeNdjson(rows, out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Stream<ConversionHistory> openStream(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return conversionHistoryRepository.streamAllOrdered();
+        }
+        return conversionHistoryRepository.streamBetween(from != null ? from : EARLIEST,
+                to != null ? to : LocalDateTime.now().plusDays(1));
+    }
+
+    private void writeNdjson(Stream<ConversionHistory> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long written = 0;
+            for (ConversionHistory row : (Iterable<ConversionHistory>) rows::iterator) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", row.getId());
+                generator.writeStringField("fromCurrency", row.getFromCurrency());
+                generator.writeStringField("toCurrency", row.getToCurrency());
+                generator.writeNumberField("amount", row.getAmount());
+                generator.writeNumberField("convertedAmount", row.getConvertedAmount());
+                generator.writeStringField("convertedAt", row.getConvertedAt().toString());
+                generator.writeStringField("status", row.getStatus());
+                if (row.getUser() != null) {
+                    generator.writeNumberField("userId", row.getUser().getId());
+                }
+                if (row.getRateSnapshotId() != null) {
+                    generator.writeNumberField("rateSnapshotId", row.getRateSnapshotId());
+                    generator.writeNumberField("fromRate", row.getFromRate());
+                    generator.writeNumberField("toRate", row.getToRate());
+                }
+                generator.writeStringField("notes", row.getNotes());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                entityManager.detach(row);
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+    }
+
+    private void writeCsv(Stream<ConversionHistory> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        long written = 0;
+        for (ConversionHistory row : (Iterable<ConversionHistory>) rows::iterator) {
+            writer.append(String.valueOf(row.getId())).append(',')
+                    .append(csv(row.getFromCurrency())).append(',')
+                    .append(csv(row.getToCurrency())).append(',')
+                    .append(String.valueOf(row.getAmount())).append(',')
+                    .append(String.valueOf(row.getConvertedAmount())).append(',')
+                    .append(row.getConvertedAt().toString()).append(',')
+                    .append(csv(row.getStatus())).append(',')
+                    .append(row.getUser() != null ? String.valueOf(row.getUser().getId()) : "").append(',')
+                    .append(csv(row.getRateSnapshotId())).append(',')
+                    .append(csv(row.getFromRate())).append(',')
+                    .append(csv(row.getToRate())).append(',')
+                    .append(csv(row.getNotes())).append('\n');
+            entityManager.detach(row);
+            if (++written % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private static String csv(Number value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.model.JournalStats;
+import com.example.currency4.repository.ConversionDeadLetterFile;
+import com.example.currency4.repository.ConversionHistoryBatchRepository;
+import com.example.currency4.repository.ConversionJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Конвертация считается сохранённой после fsync локального журнала; в conversion_history
+// записи переносит фоновый поток пакетами. У каждого экземпляра свой журнал и своя нумерация,
+// поэтому строки и отметка воспроизведения привязаны к идентификатору узла
+@Service
+@ConditionalOnProperty(name = "currency.history.write-mode", havingValue = "journal")
+public class JournalConversionHistoryWriter implements ConversionHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalConversionHistoryWriter.class);
+    private static final String DEAD_LETTER_FILE = "dead-letter.csv";
+    private static final String NODE_FILE = "node-id";
+    // Узел журнала, заведённого до появления идентификаторов; так же помечены его строки в V7
+    private static final String LEGACY_NODE = "default";
+    // Ограничивает сдвиг при вычислении паузы, дальше действует retry-max-backoff-ms
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final ConversionHistoryBatchRepository conversionHistoryBatchRepository;
+    private final HistoryQueryCache historyQueryCache;
+    private final Path directory;
+    private final String configuredNode;
+    private final int segmentSize;
+    private final int replayBatchSize;
+    private final long replayIntervalMs;
+    private final long retryMaxBackoffMs;
+    private final long startupReplayTimeoutMs;
+    private final long shutdownTimeoutMs;
+
+    private final AtomicLong replayBatches = new AtomicLong();
+    private final AtomicLong replayedRows = new AtomicLong();
+    private final AtomicLong skippedDuplicates = new AtomicLong();
+    private final AtomicLong failedReplays = new AtomicLong();
+    private final AtomicLong quarantinedRows = new AtomicLong();
+
+    private ConversionJournal journal;
+    private ConversionDeadLetterFile deadLetters;
+    private String node;
+    private volatile long appliedSeq;
+    // Пакет, который не удалось записать в БД: повторяется, пока не пройдёт, чтобы не потерять записи
+    private List<ConversionHistory> pending = List.of();
+    private int consecutiveFailures;
+    private long quarantinedSeq;
+    private volatile boolean running;
+    private Thread replayer;
+
+    public JournalConversionHistoryWriter(
+            ConversionHistoryBatchRepository conversionHistoryBatchRepository,
+            HistoryQueryCache historyQueryCache,
+            @Value("${currency.history.journal.directory:data/journal}") Path directory,
+            @Value("${currency.history.journal.node-id:}") String configuredNode,
+            @Value("${currency.history.journal.segment-size-bytes:16777216}") int segmentSize,
+            @Value("${currency.history.journal.replay-batch-size:500}") int replayBatchSize,
+            @Value("${currency.history.journal.replay-interval-ms:200}") long replayIntervalMs,
+            @Value("${currency.history.journal.retry-max-backoff-ms:10000}") long retryMaxBackoffMs,
+            @Value("${currency.history.journal.startup-replay-timeout-ms:60000}") long startupReplayTimeoutMs,
+            @Value("${currency.history.journal.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.conversionHistoryBatchRepository = conversionHistoryBatchRepository;
+        this.historyQueryCache = historyQueryCache;
+        this.directory = directory;
+        this.configuredNode = configuredNode;
+        this.segmentSize = segmentSize;
+        this.replayBatchSize = replayBatchSize;
+        this.replayIntervalMs = replayIntervalMs;
+        this.retryMaxBackoffMs = retryMaxBackoffMs;
+        this.startupReplayTimeoutMs = startupReplayTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupReplayTimeoutMs);
+        node = resolveNode();
+        deadLetters = new ConversionDeadLetterFile(directory.resolve(DEAD_LETTER_FILE));
+        quarantinedSeq = deadLetters.findMaxJournalSeq();
+        long maxJournalSeq = awaitMaxJournalSeq(deadline);
+        appliedSeq = Math.max(maxJournalSeq, quarantinedSeq);
+        journal = ConversionJournal.open(directory, segmentSize, appliedSeq);
+        // Записи, оставшиеся после остановки или сбоя, переносятся до приёма новых запросов.
+        // Если БД не отвечает дольше startup-replay-timeout-ms, перенос продолжается в фоне:
+        // записи уже в журнале, поэтому откладывается только их появление в истории
+        int recovered = 0;
+        while (true) {
+            int replayed = replayOnce();
+            recovered += replayed;
+            if (replayed > 0) {
+                continue;
+            }
+            if (pending.isEmpty()) {
+                break;
+            }
+            if (System.nanoTime() >= deadline || !sleep(retryDelayMs())) {
+                logger.warn("Conversion journal is not fully replayed on startup, continuing in background");
+                break;
+            }
+        }
+        logger.info("Conversion journal of node {} recovered, {} records replayed", node, recovered);
+        running = true;
+        replayer = new Thread(this::replayLoop, "history-journal-replay");
+        replayer.start();
+    }
+
+    @Override
+    public void write(ConversionHistory conversionHistory) {
+        conversionHistory.setJournalSeq(journal.append(conversionHistory));
+    }
+
+    @Override
+    public void writeAll(List<ConversionHistory> conversionHistories) {
+        if (conversionHistories.isEmpty()) {
+            return;
+        }
+        long seq = journal.appendAll(conversionHistories);
+        for (ConversionHistory conversionHistory : conversionHistories) {
+            conversionHistory.setJournalSeq(seq++);
+        }
+    }
+
+    public JournalStats getStats() {
+        return new JournalStats(journal.getWrittenSeq(), journal.getDurableSeq(), appliedSeq,
+                journal.getSegmentCount(), journal.getAppends(), journal.getSyncs(), replayBatches.get(),
+                replayedRows.get(), skippedDuplicates.get(), failedReplays.get(), quarantinedRows.get(),
+                journal.getDeletedSegments());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (replayer != null) {
+            replayer.interrupt();
+            try {
+                replayer.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Не перенесённое сейчас останется в журнале и будет воспроизведено при следующем старте
+        if (replayer == null || !replayer.isAlive()) {
+            while (replayOnce() > 0) {
+                // переносим остаток
+            }
+            journal.close();
+        }
+    }
+
+    private void replayLoop() {
+        while (running) {
+            if (replayOnce() == 0 && !sleep(retryDelayMs())) {
+                break;
+            }
+        }
+    }
+
+    // Без номера последней перенесённой записи журнал не открыть, поэтому ждём БД до срока старта
+    private long awaitMaxJournalSeq(long deadline) {
+        while (true) {
+            try {
+                return conversionHistoryBatchRepository.findMaxJournalSeq(node);
+            } catch (RuntimeException e) {
+                consecutiveFailures++;
+                if (System.nanoTime() >= deadline || !sleep(retryDelayMs())) {
+                    throw e;
+                }
+                logger.warn("Unable to read the last replayed journal seq, retrying: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Идентификатор хранится рядом с журналом: после перезапуска экземпляр продолжает свою нумерацию,
+    // даже если сменились имя хоста или адрес
+    private String resolveNode() {
+        if (!configuredNode.isBlank()) {
+            return configuredNode.strip();
+        }
+        Path file = directory.resolve(NODE_FILE);
+        try {
+            if (Files.isRegularFile(file)) {
+                return Files.readString(file, StandardCharsets.UTF_8).strip();
+            }
+            Files.createDirectories(directory);
+            String created;
+            try (Stream<Path> existing = Files.list(directory)) {
+                boolean legacy = existing.anyMatch(
+                        path -> !path.getFileName().toString().startsWith(NODE_FILE));
+                created = legacy ? LEGACY_NODE : UUID.randomUUID().toString();
+            }
+            Path temporary = directory.resolve(NODE_FILE + ".tmp");
+            Files.writeString(temporary, created, StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            return created;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to resolve journal node id in " + directory, e);
+        }
+    }
+
+    // Обычный интервал опроса; после ошибок пауза растёт вдвое до retry-max-backoff-ms
+    private long retryDelayMs() {
+        if (consecutiveFailures == 0) {
+            return replayIntervalMs;
+        }
+        long delay = replayIntervalMs << Math.min(consecutiveFailures, MAX_BACKOFF_SHIFT);
+        return Math.min(delay, retryMaxBackoffMs);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int replayOnce() {
+        if (pending.isEmpty()) {
+            pending = journal.readDurable(replayBatchSize);
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            pending.forEach(history -> history.setJournalNode(node));
+        }
+        List<ConversionHistory> batch = pending;
+        long lastSeq = batch.get(batch.size() - 1).getJournalSeq();
+        try {
+            try {
+                insertFresh(batch);
+            } catch (DataIntegrityViolationException e) {
+                // Одна отвергнутая запись не должна держать весь пакет и всё, что записано после него
+                logger.warn("Journal batch rejected by the database, replaying records one by one: {}",
+                        e.getMessage());
+                replayOneByOne(batch);
+            }
+        } catch (RuntimeException e) {
+            consecutiveFailures++;
+            failedReplays.incrementAndGet();
+            logger.error("Failed to replay {} journal records, will retry: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+        consecutiveFailures = 0;
+        pending = List.of();
+        appliedSeq = lastSeq;
+        journal.release(lastSeq);
+        return batch.size();
+    }
+
+    private void insertFresh(List<ConversionHistory> batch) {
+        long firstSeq = batch.get(0).getJournalSeq();
+        long lastSeq = batch.get(batch.size() - 1).getJournalSeq();
+        // Запись могла попасть в БД до сбоя, но после последней отметки воспроизведения
+        Set<Long> applied = new HashSet<>(
+                conversionHistoryBatchRepository.findJournalSeqsBetween(node, firstSeq, lastSeq));
+        List<ConversionHistory> fresh = applied.isEmpty() ? batch
+                : batch.stream().filter(history -> !applied.contains(history.getJournalSeq())).toList();
+        conversionHistoryBatchRepository.insertAll(fresh);
+        historyQueryCache.invalidate(fresh);
+        replayBatches.incrementAndGet();
+        replayedRows.addAndGet(fresh.size());
+        skippedDuplicates.addAndGet(batch.size() - fresh.size());
+    }
+
+    // Записи, которые БД отвергает по ограничениям, уходят в файл недоставленных; прочие ошибки
+    // (недоступность БД) прерывают проход, и пакет повторяется целиком — вставленное пропустится
+    private void replayOneByOne(List<ConversionHistory> batch) {
+        for (ConversionHistory history : batch) {
+            if (history.getJournalSeq() <= quarantinedSeq) {
+                continue;
+            }
+            try {
+                insertFresh(List.of(history));
+            } catch (DataIntegrityViolationException e) {
+                deadLetters.append(history, e.getMostSpecificCause().getMessage());
+                quarantinedSeq = history.getJournalSeq();
+                quarantinedRows.incrementAndGet();
+                logger.error("Journal record {} moved to {}: {}", history.getJournalSeq(),
+                        deadLetters.getFile(), e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.currency4.service;
+
+import com.example.currency4.model.RateHistoryStats;
+import com.example.currency4.model.RateSeries;
+import com.example.currency4.repository.RateSnapshotRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+public class RateHistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateHistoryStore.class);
+
+    private final RateSnapshotRepository rateSnapshotRepository;
+    private final Duration retention;
+    private final Duration downsampleAfter;
+    private final Duration downsampleInterval;
+
+    // Публикуется целиком: читатели берут ссылку один раз и ищут без блокировок
+    private volatile Map<String, RateSeries> series = Map.of();
+
+    public RateHistoryStore(RateSnapshotRepository rateSnapshotRepository,
+                            @Value("${currency.rates.history.retention-days:1825}") long retentionDays,
+                            @Value("${currency.rates.history.downsample-after-days:90}")
+                            long downsampleAfterDays,
+                            @Value("${currency.rates.history.downsample-interval-minutes:1440}")
+                            long downsampleIntervalMinutes) {
+        if (downsampleIntervalMinutes <= 0) {
+            throw new IllegalArgumentException("Downsample interval must be positive");
+        }
+        this.rateSnapshotRepository = rateSnapshotRepository;
+        this.retention = Duration.ofDays(retentionDays);
+        this.downsampleAfter = Duration.ofDays(downsampleAfterDays);
+        this.downsampleInterval = Duration.ofMinutes(downsampleIntervalMinutes);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        Map<String, RateSeries> loaded = new HashMap<>();
+        rateSnapshotRepository.forEachRatePointSince(Instant.now().minus(retention),
+                (code, timestamp, rate) -> loaded.merge(code.toUpperCase(Locale.ROOT),
+                        RateSeries.empty().append(timestamp, rate),
+                        (existing, ignored) -> existing.append(timestamp, rate)));
+        series = compactAll(loaded);
+        RateHistoryStats stats = getStats();
+        logger.info("Loaded rate history: {} points for {} currencies", stats.getPoints(),
+                stats.getCurrencies());
+    }
+
+    // Часы могут сдвинуться назад; тогда точка ставится на время последней, чтобы новый курс не потерялся
+    public synchronized void record(Instant fetchedAt, Map<String, Double> rates) {
+        long timestamp = fetchedAt.toEpochMilli();
+        Map<String, RateSeries> updated = new HashMap<>(series);
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            updated.merge(entry.getKey().toUpperCase(Locale.ROOT),
+                    RateSeries.empty().append(timestamp, entry.getValue()),
+                    (existing, ignored) -> existing.append(Math.max(timestamp, existing.lastTimestamp()),
+                            entry.getValue()));
+        }
+        series = updated;
+    }
+
+    @Scheduled(fixedDelayString = "${currency.rates.history.compact-interval-ms:86400000}",
+            initialDelayString = "${currency.rates.history.compact-interval-ms:86400000}")
+    public synchronized void compact() {
+        series = compactAll(series);
+    }
+
+    // Возвращает NaN, если для валюты нет курса на этот момент
+    public double rateAsOf(String code, Instant asOf) {
+        long timestamp = asOf.toEpochMilli();
+        if (timestamp < System.currentTimeMillis() - retention.toMillis()) {
+            throw new IllegalArgumentException("asOf is outside the rate history retention window ("
+                    + retention.toDays() + " days)");
+        }
+        RateSeries currencySeries = series.get(code);
+        return currencySeries != null ? currencySeries.rateAsOf(timestamp) : Double.NaN;
+    }
+
+    public RateHistoryStats getStats() {
+        Map<String, RateSeries> current = series;
+        long points = 0;
+        long oldest = Long.MAX_VALUE;
+        for (RateSeries currencySeries : current.values()) {
+            points += currencySeries.size();
+            oldest = Math.min(oldest, currencySeries.firstTimestamp());
+        }
+        return new RateHistoryStats(current.size(), points,
+                oldest == Long.MAX_VALUE ? null : Instant.ofEpochMilli(oldest).toString(),
+                retention.toDays(), downsampleAfter.toDays(), downsampleInterval.toMinutes());
+    }
+
+    private Map<String, RateSeries> compactAll(Map<String, RateSeries> source) {
+        Instant now = Instant.now();
+        long retainFrom = now.minus(retention).toEpochMilli();
+        long downsampleBefore = now.minus(downsampleAfter).toEpochMilli();
+        Map<String, RateSeries> compacted = HashMap.newHashMap(source.size());
+        source.forEach((code, currencySeries) -> compacted.put(code,
+                currencySeries.compact(retainFrom, downsampleBefore, downsampleInterval.toMillis())));
+        return compacted;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.SingleFlight;
+import com.example.currency4.exceptions.RatesUnavailableException;
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import com.example.currency4.model.CurrencyResponse;
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.model.SingleFlightStats;
+import com.example.currency4.model.WarmStartStats;
+import com.example.currency4.repository.CurrencyRateBatchRepository;
+import com.example.currency4.repository.RateSnapshotFileStore;
+import com.example.currency4.repository.RateSnapshotRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class RateSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateSnapshotService.class);
+    private static final String REFRESH = "refresh";
+    private static final String STORED_RATES_SOURCE = "currency_rate";
+    private static final String FILE_SOURCE = "snapshot-file";
+    private static final long NOT_SERVED = -1;
+    // Open Exchange Rates на бесплатном тарифе отдаёт курсы только относительно USD
+    private static final String STORED_RATES_BASE = "USD";
+
+    private final CurrencyService currencyService;
+    private final RateSnapshotRepository rateSnapshotRepository;
+    private final RateHistoryStore rateHistoryStore;
+    private final CurrencyRateBatchRepository currencyRateBatchRepository;
+    private final RateSnapshotFileStore rateSnapshotFileStore;
+    private final TaskExecutor taskExecutor;
+    private final AtomicReference<RateSnapshot> current = new AtomicReference<>();
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+    private final AtomicBoolean reconcilePending = new AtomicBoolean();
+    private final AtomicReference<String> initialSource = new AtomicReference<>();
+    private final AtomicLong firstServedUptimeMillis = new AtomicLong(NOT_SERVED);
+    private final boolean warmStartEnabled;
+    private volatile long fileLoadMillis = NOT_SERVED;
+    private final SingleFlight<String, RateSnapshot> refreshFlight;
+    private final Duration staleAfter;
+    private final Duration maxStaleness;
+
+    public RateSnapshotService(CurrencyService currencyService,
+                               RateSnapshotRepository rateSnapshotRepository,
+                               RateHistoryStore rateHistoryStore,
+                               CurrencyRateBatchRepository currencyRateBatchRepository,
+                               RateSnapshotFileStore rateSnapshotFileStore,
+                               @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                               @Value("${currency.rates.warm-start.enabled:true}") boolean warmStartEnabled,
+                               @Value("${currency.rates.fetch.wait-timeout-ms:10000}") long waitTimeoutMs,
+                               @Value("${currency.rates.stale-after-ms:3900000}") long staleAfterMs,
+                               @Value("${currency.rates.max-staleness-ms:86400000}") long maxStalenessMs) {
+        this.currencyService = currencyService;
+        this.rateSnapshotRepository = rateSnapshotRepository;
+        this.rateHistoryStore = rateHistoryStore;
+        this.currencyRateBatchRepository = currencyRateBatchRepository;
+        this.rateSnapshotFileStore = rateSnapshotFileStore;
+        this.taskExecutor = taskExecutor;
+        this.warmStartEnabled = warmStartEnabled;
+        this.refreshFlight = new SingleFlight<>("rate refresh", Duration.ofMillis(waitTimeoutMs));
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.maxStaleness = Duration.ofMillis(maxStalenessMs);
+    }
+
+    // Снимок из файла доступен до первого обращения к сети и к таблицам курсов
+    @PostConstruct
+    public void warmStart() {
+        if (!warmStartEnabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        Optional<RateSnapshot> fromFile = rateSnapshotFileStore.read();
+        fileLoadMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        fromFile.ifPresent(snapshot -> {
+            if (current.compareAndSet(null, snapshot)) {
+                initialSource.compareAndSet(null, "file");
+                reconcilePending.set(true);
+                logger.info("Warm start from {}: snapshot v{} fetched at {}, {} currencies, loaded in {} ms",
+                        rateSnapshotFileStore.getFile(), snapshot.getVersion(), snapshot.getFetchedAt(),
+                        snapshot.getTable().size(), fileLoadMillis);
+            }
+        });
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${currency.rates.refresh-interval-ms:3600000}")
+    public void scheduledRefresh() {
+        if (reconcilePending.compareAndSet(true, false)) {
+            try {
+                reconcileWarmStart();
+            } catch (RuntimeException e) {
+                reconcilePending.set(true);
+                logger.warn("Reconciling warm-start snapshot with the database failed: {}", e.getMessage());
+                return;
+            }
+        }
+        try {
+            refreshFlight.execute(REFRESH, this::installLatestOrStored);
+        } catch (RuntimeException e) {
+            // Оставляем предыдущий снимок, следующая попытка будет по расписанию
+            logger.warn("Scheduled rate refresh failed: {}", e.getMessage());
+        }
+    }
+
+    public RateSnapshot refresh() {
+        return refreshFlight.execute(REFRESH, this::installLatest);
+    }
+
+    public SingleFlightStats getRefreshStats() {
+        return refreshFlight.getStats();
+    }
+
+    private RateSnapshot installLatest() {
+        CurrencyResponse response = currencyService.fetchExchangeRates();
+        Instant fetchedAt = Instant.now();
+        RateSnapshot previous = current.get();
+        long version;
+        if (previous != null && Objects.equals(previous.getBase(), response.getBase())
+                && previous.getTable().hasSameRates(response.getRates())) {
+            // Курсы не изменились: новая версия не нужна, история продолжает ссылаться на прежнюю
+            version = previous.getVersion();
+        } else {
+            version = rateSnapshotRepository.insert(response.getBase(), CurrencyService.RATE_SOURCE,
+                    fetchedAt, response.getRates());
+            rateHistoryStore.record(fetchedAt, response.getRates());
+        }
+        RateSnapshot snapshot = new RateSnapshot(version, fetchedAt, response.getBase(), response.getRates());
+        current.set(snapshot);
+        initialSource.compareAndSet(null, "upstream");
+        writeFile(snapshot);
+        logger.info("Installed rate snapshot v{} with {} currencies", snapshot.getVersion(),
+                snapshot.getTable().size());
+        return snapshot;
+    }
+
+    // Без текущего снимка (холодный старт при недоступном upstream) берутся последние сохранённые курсы
+    private RateSnapshot installLatestOrStored() {
+        try {
+            return installLatest();
+        } catch (RuntimeException e) {
+            if (current.get() != null) {
+                throw e;
+            }
+            RateSnapshot stored = loadStored().orElseThrow(() -> e);
+            logger.warn("Rate refresh failed ({}), serving stored snapshot v{} fetched at {}", e.getMessage(),
+                    stored.getVersion(), stored.getFetchedAt());
+            // Сохранённый снимок старше истории курсов, поэтому в RateHistoryStore он не записывается
+            if (current.compareAndSet(null, stored)) {
+                initialSource.compareAndSet(null, "database");
+                writeFile(stored);
+            }
+            return current.get();
+        }
+    }
+
+    // Файл мог пережить базу или отстать от неё: версия снимка должна существовать в rate_snapshot,
+    // иначе конвертации сошлются на отсутствующую строку
+    private void reconcileWarmStart() {
+        RateSnapshot fromFile = current.get();
+        Optional<RateSnapshot> stored = loadStored();
+        if (stored.isPresent() && stored.get().getVersion() == fromFile.getVersion()) {
+            return;
+        }
+        if (stored.isPresent() && !stored.get().getFetchedAt().isBefore(fromFile.getFetchedAt())) {
+            if (current.compareAndSet(fromFile, stored.get())) {
+                writeFile(stored.get());
+                logger.info("Replaced warm-start snapshot v{} with stored snapshot v{}",
+                        fromFile.getVersion(), stored.get().getVersion());
+            }
+        } else if (!rateSnapshotRepository.exists(fromFile.getVersion())) {
+            Map<String, Double> rates = fromFile.getTable().toMap();
+            long version = rateSnapshotRepository.insert(fromFile.getBase(), FILE_SOURCE,
+                    fromFile.getFetchedAt(), rates);
+            RateSnapshot persisted = new RateSnapshot(version, fromFile.getFetchedAt(), fromFile.getBase(),
+                    rates);
+            if (current.compareAndSet(fromFile, persisted)) {
+                writeFile(persisted);
+                logger.info("Persisted warm-start snapshot v{} as v{}", fromFile.getVersion(), version);
+            }
+        }
+    }
+
+    private void writeFile(RateSnapshot snapshot) {
+        if (!warmStartEnabled) {
+            return;
+        }
+        try {
+            rateSnapshotFileStore.write(snapshot);
+        } catch (UncheckedIOException e) {
+            // Без файла следующий старт будет холодным, но текущая работа не страдает
+            logger.warn("Unable to write rate snapshot file: {}", e.getMessage());
+        }
+    }
+
+    public WarmStartStats getWarmStartStats() {
+        return new WarmStartStats(warmStartEnabled, rateSnapshotFileStore.getFile().toString(),
+                initialSource.get(), fileLoadMillis, firstServedUptimeMillis.get());
+    }
+
+    private Optional<RateSnapshot> loadStored() {
+        Optional<RateSnapshot> latest = rateSnapshotRepository.findLatest();
+        if (latest.isPresent()) {
+            return latest;
+        }
+        // Снимков ещё нет (база до миграции V3): курсы из currency_rate оформляются снимком,
+        // чтобы конвертации могли на него сослаться
+        Map<String, Double> rates = currencyRateBatchRepository.findAllRates();
+        Optional<Instant> lastUpdated = currencyRateBatchRepository.findLastUpdated();
+        if (rates.isEmpty() || lastUpdated.isEmpty()) {
+            return Optional.empty();
+        }
+        long version = rateSnapshotRepository.insert(STORED_RATES_BASE, STORED_RATES_SOURCE,
+                lastUpdated.get(), rates);
+        return Optional.of(new RateSnapshot(version, lastUpdated.get(), STORED_RATES_BASE, rates));
+    }
+
+    public boolean isStale(RateSnapshot snapshot) {
+        return snapshot.getAge().compareTo(staleAfter) > 0;
+    }
+
+    public Optional<RateSnapshot> findSnapshot(long version) {
+        RateSnapshot snapshot = current.get();
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return Optional.of(snapshot);
+        }
+        return rateSnapshotRepository.findById(version);
+    }
+
+    public RateSnapshot getSnapshot() {
+        RateSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            // Первые запросы до завершения начальной загрузки ждут одну общую загрузку
+            snapshot = refreshFlight.execute(REFRESH, () -> {
+                RateSnapshot installed = current.get();
+                return installed != null ? installed : installLatestOrStored();
+            });
+        }
+        if (firstServedUptimeMillis.get() == NOT_SERVED) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (firstServedUptimeMillis.compareAndSet(NOT_SERVED, uptime)) {
+                logger.info("First rate snapshot served {} ms after JVM start (source: {})", uptime,
+                        initialSource.get());
+            }
+        }
+        Duration age = snapshot.getAge();
+        if (age.compareTo(maxStaleness) > 0) {
+            // Курсы старше допустимого не отдаются: последняя попытка обновиться синхронно.
+            // При разомкнутой цепи она завершается сразу, не нагружая upstream
+            try {
+                return refresh();
+            } catch (ServiceOverloadedException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new RatesUnavailableException("Exchange rates are " + age.toMinutes()
+                        + " minutes old and cannot be refreshed: " + e.getMessage(), e);
+            }
+        }
+        if (age.compareTo(staleAfter) > 0) {
+            revalidateInBackground();
+        }
+        return snapshot;
+    }
+
+    // Устаревший снимок продолжает обслуживать запросы, пока обновление идёт в фоне
+    private void revalidateInBackground() {
+        if (!revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    logger.warn("Background rate refresh failed: {}", e.getMessage());
+                } finally {
+                    revalidating.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            revalidating.set(false);
+            logger.warn("Background rate refresh was not scheduled: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.repository.ConversionHistoryBatchRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "currency.history.write-mode", havingValue = "sync", matchIfMissing = true)
+public class SynchronousConversionHistoryWriter implements ConversionHistoryWriter {
+
+    private final ConversionHistoryBatchRepository conversionHistoryBatchRepository;
+    private final HistoryQueryCache historyQueryCache;
+
+    public SynchronousConversionHistoryWriter(
+            ConversionHistoryBatchRepository conversionHistoryBatchRepository,
+            HistoryQueryCache historyQueryCache) {
+        this.conversionHistoryBatchRepository = conversionHistoryBatchRepository;
+        this.historyQueryCache = historyQueryCache;
+    }
+
+    @Override
+    public void write(ConversionHistory conversionHistory) {
+        writeAll(List.of(conversionHistory));
+    }
+
+    // Внутри транзакции вызывающего кэш сбрасывается после её фиксации, иначе сразу
+    @Override
+    public void writeAll(List<ConversionHistory> conversionHistories) {
+        conversionHistoryBatchRepository.insertAll(conversionHistories);
+        historyQueryCache.invalidateAfterCommit(conversionHistories);
+    }
+}
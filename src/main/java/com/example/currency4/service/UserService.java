@@ -1,12 +1,14 @@
 package com.example.currency4.service;
 
 import com.example.currency4.entity.User;
+import com.example.currency4.repository.ConversionRollupRepository;
 import com.example.currency4.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +19,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ConversionRollupRepository conversionRollupRepository;
+
     @Cacheable(value = "userCache")
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -41,9 +46,12 @@ public class UserService {
     }
 
     @CacheEvict(value = "userCache", key = "#id")
+    @Transactional
     public void deleteUser(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        // История пользователя удаляется каскадно, её вклад в агрегаты вычитается в той же транзакции
+        conversionRollupRepository.subtractUser(id);
         userRepository.delete(user);
     }
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import com.example.currency4.model.WriteBehindStats;
+import com.example.currency4.repository.ConversionDeadLetterFile;
+import com.example.currency4.repository.ConversionHistoryBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@ConditionalOnProperty(name = "currency.history.write-mode", havingValue = "write-behind")
+public class WriteBehindConversionHistoryWriter implements ConversionHistoryWriter {
+
+    public enum OverflowPolicy {
+        BLOCK, DROP, CALLER_RUNS
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindConversionHistoryWriter.class);
+
+    private final ConversionHistoryBatchRepository conversionHistoryBatchRepository;
+    private final HistoryQueryCache historyQueryCache;
+    private final BatchingQueue<ConversionHistory> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long blockTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final int flushRetries;
+    private final long retryBackoffMs;
+    private final OverflowPolicy overflowPolicy;
+    private final ConversionDeadLetterFile spillFile;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong writtenByCaller = new AtomicLong();
+    private final AtomicLong batchesFlushed = new AtomicLong();
+    private final AtomicLong rowsFlushed = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong retriedBatches = new AtomicLong();
+    private final AtomicLong spilledRows = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public WriteBehindConversionHistoryWriter(
+            ConversionHistoryBatchRepository conversionHistoryBatchRepository,
+            HistoryQueryCache historyQueryCache,
+            @Value("${currency.history.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${currency.history.write-behind.batch-size:500}") int batchSize,
+            @Value("${currency.history.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${currency.history.write-behind.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+            @Value("${currency.history.write-behind.block-timeout-ms:1000}") long blockTimeoutMs,
+            @Value("${currency.history.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+            @Value("${currency.history.write-behind.flush-retries:3}") int flushRetries,
+            @Value("${currency.history.write-behind.retry-backoff-ms:200}") long retryBackoffMs,
+            @Value("${currency.history.write-behind.spill-file:data/history-spill.csv}") String spillFile) {
+        this.conversionHistoryBatchRepository = conversionHistoryBatchRepository;
+        this.historyQueryCache = historyQueryCache;
+        this.queue = new BatchingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.flushRetries = flushRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.spillFile = new ConversionDeadLetterFile(Path.of(spillFile));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "history-write-behind");
+        worker.start();
+    }
+
+    @Override
+    public void write(ConversionHistory conversionHistory) {
+        writeAll(List.of(conversionHistory));
+    }
+
+    @Override
+    public void writeAll(List<ConversionHistory> conversionHistories) {
+        if (conversionHistories.isEmpty()) {
+            return;
+        }
+        // Пакет больше всей очереди в неё никогда не поместится, а после остановки очередь
+        // уже никто не разберёт: в обоих случаях пакет пишется сразу
+        if (conversionHistories.size() > queue.capacity()) {
+            writeDirectly(conversionHistories);
+            return;
+        }
+        long waitNanos = overflowPolicy == OverflowPolicy.BLOCK
+                ? TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs) : 0;
+        if (queue.offerAll(conversionHistories, waitNanos)) {
+            enqueued.addAndGet(conversionHistories.size());
+        } else if (queue.isClosed()) {
+            writeDirectly(conversionHistories);
+        } else {
+            overflow(conversionHistories);
+        }
+    }
+
+    public WriteBehindStats getStats() {
+        return new WriteBehindStats(queue.size(), queue.capacity(), overflowPolicy.name(), enqueued.get(),
+                dropped.get(), writtenByCaller.get(), batchesFlushed.get(), rowsFlushed.get(),
+                failedRows.get(), retriedBatches.get(), spilledRows.get(), lastBatchSize.get(),
+                maxBatchSize.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queue.close();
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Всё, что не успел записать рабочий поток, пишем здесь
+        List<ConversionHistory> remaining = queue.drainAll();
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+        logger.info("Write-behind queue flushed on shutdown ({} records)", remaining.size());
+    }
+
+    private void overflow(List<ConversionHistory> histories) {
+        switch (overflowPolicy) {
+            case DROP -> {
+                dropped.addAndGet(histories.size());
+                logger.warn("Write-behind queue is full, dropping {} conversion history records",
+                        histories.size());
+            }
+            case CALLER_RUNS -> writeDirectly(histories);
+            default -> throw new ServiceOverloadedException(
+                    "Conversion history queue is full, try again later");
+        }
+    }
+
+    private void writeDirectly(List<ConversionHistory> histories) {
+        conversionHistoryBatchRepository.insertAll(histories);
+        historyQueryCache.invalidate(histories);
+        writtenByCaller.addAndGet(histories.size());
+    }
+
+    private void drainLoop() {
+        List<ConversionHistory> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ConversionHistory first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    // Пакет уходит в БД, когда набран batch-size или истёк flush-interval
+    private void fillBatch(List<ConversionHistory> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            ConversionHistory next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    // Сбои БД повторяются с удвоением паузы; строки, которые БД отвергает, и пакеты, не записанные
+    // после всех попыток, уходят в spill-файл, а не теряются
+    private void flush(List<ConversionHistory> batch) {
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                insert(batch);
+                batchesFlushed.incrementAndGet();
+                lastBatchSize.set(batch.size());
+                maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Повтор пакета целиком не поможет: пишем по одной, чтобы отделить отвергнутые строки
+                flushOneByOne(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= flushRetries || !sleep(backoffMs)) {
+                    spill(batch, e);
+                    return;
+                }
+                retriedBatches.incrementAndGet();
+                logger.warn("Failed to flush {} conversion history records, retrying in {} ms: {}",
+                        batch.size(), backoffMs, e.getMessage());
+                backoffMs <<= 1;
+            }
+        }
+    }
+
+    private void flushOneByOne(List<ConversionHistory> batch) {
+        for (ConversionHistory history : batch) {
+            try {
+                insert(List.of(history));
+            } catch (RuntimeException e) {
+                spill(List.of(history), e);
+            }
+        }
+    }
+
+    private void insert(List<ConversionHistory> rows) {
+        conversionHistoryBatchRepository.insertAll(rows);
+        historyQueryCache.invalidate(rows);
+        rowsFlushed.addAndGet(rows.size());
+    }
+
+    private void spill(List<ConversionHistory> rows, RuntimeException cause) {
+        failedRows.addAndGet(rows.size());
+        String error = cause instanceof DataIntegrityViolationException integrity
+                ? integrity.getMostSpecificCause().getMessage() : cause.getMessage();
+        try {
+            for (ConversionHistory history : rows) {
+                spillFile.append(history, error);
+                spilledRows.incrementAndGet();
+            }
+            logger.error("Failed to flush {} conversion history records, moved to {}: {}", rows.size(),
+                    spillFile.getFile(), error);
+        } catch (RuntimeException e) {
+            logger.error("Failed to flush {} conversion history records and to spill them to {}: {}",
+                    rows.size(), spillFile.getFile(), error, e);
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+-- Схема, которую раньше создавал Hibernate через ddl-auto=update
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS currency_rate (
+    currency_code VARCHAR(255) PRIMARY KEY,
+    rate          FLOAT(53)    NOT NULL,
+    last_updated  TIMESTAMP(6) NOT NULL,
+    source        VARCHAR(100)
+);
+
+CREATE TABLE IF NOT EXISTS conversion_history (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    from_currency    VARCHAR(255),
+    to_currency      VARCHAR(255),
+    amount           FLOAT(53)    NOT NULL,
+    converted_amount FLOAT(53)    NOT NULL,
+    converted_at     TIMESTAMP(6) NOT NULL,
+    notes            VARCHAR(255),
+    status           VARCHAR(50),
+    user_id          BIGINT       NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS conversion_history_currency_rate (
+    conversion_history_id BIGINT       NOT NULL REFERENCES conversion_history (id),
+    currency_rate_code    VARCHAR(255) NOT NULL REFERENCES currency_rate (currency_code),
+    PRIMARY KEY (conversion_history_id, currency_rate_code)
+);
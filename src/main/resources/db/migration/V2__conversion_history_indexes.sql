@@ -0,0 +1,15 @@
+-- Постраничный вывод по курсору, экспорт и выборки по интервалу времени
+CREATE INDEX IF NOT EXISTS idx_conversion_history_converted_at_id
+    ON conversion_history (converted_at, id);
+
+-- /history, интервал с фильтром по паре валют
+CREATE INDEX IF NOT EXISTS idx_conversion_history_pair_converted_at
+    ON conversion_history (from_currency, to_currency, converted_at);
+
+-- /to-history, интервал с фильтром только по целевой валюте
+CREATE INDEX IF NOT EXISTS idx_conversion_history_to_converted_at
+    ON conversion_history (to_currency, converted_at);
+
+-- /history/user/{userId}, интервал с фильтром по пользователю
+CREATE INDEX IF NOT EXISTS idx_conversion_history_user_converted_at
+    ON conversion_history (user_id, converted_at);
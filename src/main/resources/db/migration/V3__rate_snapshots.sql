@@ -0,0 +1,24 @@
+-- Каждое обновление курсов сохраняется как неизменяемый пронумерованный снимок
+CREATE TABLE rate_snapshot (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    base       VARCHAR(10)  NOT NULL,
+    source     VARCHAR(100),
+    fetched_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE rate_snapshot_entry (
+    snapshot_id   BIGINT       NOT NULL REFERENCES rate_snapshot (id),
+    currency_code VARCHAR(255) NOT NULL,
+    rate          FLOAT(53)    NOT NULL,
+    PRIMARY KEY (snapshot_id, currency_code)
+);
+
+CREATE INDEX idx_rate_snapshot_fetched_at ON rate_snapshot (fetched_at);
+
+-- У старых строк снимка нет: ссылки на currency_rate не сохраняли использованный курс
+ALTER TABLE conversion_history
+    ADD COLUMN rate_snapshot_id BIGINT REFERENCES rate_snapshot (id),
+    ADD COLUMN from_rate        FLOAT(53),
+    ADD COLUMN to_rate          FLOAT(53);
+
+DROP TABLE conversion_history_currency_rate;
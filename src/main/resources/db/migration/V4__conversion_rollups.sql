@@ -0,0 +1,33 @@
+-- Агрегаты объёма конвертаций по паре валют и по пользователю за час и за день
+CREATE TABLE conversion_rollup (
+    granularity            VARCHAR(10)  NOT NULL,
+    dimension              VARCHAR(10)  NOT NULL,
+    dimension_key          VARCHAR(511) NOT NULL,
+    bucket_start           TIMESTAMP(6) NOT NULL,
+    conversion_count       BIGINT       NOT NULL,
+    total_amount           FLOAT(53)    NOT NULL,
+    total_converted_amount FLOAT(53)    NOT NULL,
+    min_converted_amount   FLOAT(53)    NOT NULL,
+    max_converted_amount   FLOAT(53)    NOT NULL,
+    PRIMARY KEY (granularity, dimension, dimension_key, bucket_start)
+);
+
+-- Итоги по всем ключам измерения за период
+CREATE INDEX idx_conversion_rollup_bucket ON conversion_rollup (granularity, dimension, bucket_start);
+
+-- Заполнение по уже накопленной истории
+INSERT INTO conversion_rollup
+SELECT g.granularity, 'PAIR', UPPER(h.from_currency) || '/' || UPPER(h.to_currency),
+       date_trunc(g.unit, h.converted_at),
+       count(*), sum(h.amount), sum(h.converted_amount), min(h.converted_amount), max(h.converted_amount)
+FROM conversion_history h
+CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g (granularity, unit)
+WHERE h.from_currency IS NOT NULL AND h.to_currency IS NOT NULL
+GROUP BY 1, 3, 4;
+
+INSERT INTO conversion_rollup
+SELECT g.granularity, 'USER', CAST(h.user_id AS VARCHAR), date_trunc(g.unit, h.converted_at),
+       count(*), sum(h.amount), sum(h.converted_amount), min(h.converted_amount), max(h.converted_amount)
+FROM conversion_history h
+CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g (granularity, unit)
+GROUP BY 1, 3, 4;
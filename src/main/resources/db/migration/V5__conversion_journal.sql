@@ -0,0 +1,5 @@
+-- Номер записи локального журнала: повторное воспроизведение после сбоя не создаёт дублей
+ALTER TABLE conversion_history ADD COLUMN journal_seq BIGINT;
+
+CREATE UNIQUE INDEX idx_conversion_history_journal_seq
+    ON conversion_history (journal_seq) WHERE journal_seq IS NOT NULL;
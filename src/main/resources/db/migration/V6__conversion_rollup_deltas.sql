@@ -0,0 +1,19 @@
+-- Вклады конвертаций в агрегаты: простые вставки без ON CONFLICT, поэтому параллельные записи
+-- истории не ждут блокировок строк conversion_rollup. Фоновая задача сворачивает их в агрегаты
+CREATE TABLE conversion_rollup_delta (
+    id                     BIGSERIAL    PRIMARY KEY,
+    granularity            VARCHAR(10)  NOT NULL,
+    dimension              VARCHAR(10)  NOT NULL,
+    dimension_key          VARCHAR(511) NOT NULL,
+    bucket_start           TIMESTAMP(6) NOT NULL,
+    conversion_count       BIGINT       NOT NULL,
+    total_amount           FLOAT(53)    NOT NULL,
+    total_converted_amount FLOAT(53)    NOT NULL,
+    -- NULL у вычитаний (правка, удаление): min/max такой корзины пересчитываются по истории
+    min_converted_amount   FLOAT(53),
+    max_converted_amount   FLOAT(53)
+);
+
+-- Пересчёт корзины убирает и её ещё не свёрнутые вклады
+CREATE INDEX idx_conversion_rollup_delta_bucket
+    ON conversion_rollup_delta (granularity, dimension, dimension_key, bucket_start);
@@ -0,0 +1,10 @@
+-- Номера журнала локальны для каждого экземпляра, поэтому запись определяется парой (узел, номер).
+-- Строки, перенесённые до появления узлов, принадлежат журналу узла 'default'
+ALTER TABLE conversion_history ADD COLUMN journal_node VARCHAR(64);
+
+UPDATE conversion_history SET journal_node = 'default' WHERE journal_seq IS NOT NULL;
+
+DROP INDEX idx_conversion_history_journal_seq;
+
+CREATE UNIQUE INDEX idx_conversion_history_journal_node_seq
+    ON conversion_history (journal_node, journal_seq) WHERE journal_seq IS NOT NULL;
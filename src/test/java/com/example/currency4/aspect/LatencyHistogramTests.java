@@ -0,0 +1,89 @@
+package com.example.currency4.aspect;
+
+import com.example.currency4.model.LatencyStats;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTests {
+
+	private static final int SUB_BUCKETS = 32;
+	private static final long NANOS_PER_MICRO = 1000;
+	// Относительная ширина корзины — 1/32
+	private static final double MAX_RELATIVE_ERROR = 1.0 / SUB_BUCKETS;
+	// 2^36 - 1 мкс, верхняя граница гистограммы
+	private static final long LARGEST_VALUE = 68_719_476_735L;
+	private static final int SAMPLES = 1000;
+	// Значения 1..SAMPLES, поэтому перцентиль равен своему рангу
+	private static final long P50 = 500;
+	private static final long P90 = 900;
+	private static final long P99 = 990;
+	private static final long P999 = 999;
+
+	@Test
+	void smallValuesHaveExactBuckets() {
+		for (long micros = 0; micros < SUB_BUCKETS; micros++) {
+			int bucket = LatencyHistogram.bucketOf(micros);
+			assertThat(bucket).isEqualTo((int) micros);
+			assertThat(LatencyHistogram.highestValueIn(bucket)).isEqualTo(micros);
+		}
+	}
+
+	@Test
+	void everyValueFallsIntoBucketThatCoversIt() {
+		long previousHighest = -1;
+		for (int bucket = 0; bucket <= LatencyHistogram.bucketOf(LARGEST_VALUE); bucket++) {
+			long lowest = previousHighest + 1;
+			long highest = LatencyHistogram.highestValueIn(bucket);
+			assertThat(LatencyHistogram.bucketOf(lowest)).isEqualTo(bucket);
+			assertThat(LatencyHistogram.bucketOf(highest)).isEqualTo(bucket);
+			assertThat((double) (highest - lowest))
+					.isLessThanOrEqualTo(lowest * MAX_RELATIVE_ERROR);
+			previousHighest = highest;
+		}
+		assertThat(previousHighest).isEqualTo(LARGEST_VALUE);
+	}
+
+	@Test
+	void percentilesAreSelectedByRank() {
+		LatencyHistogram histogram = new LatencyHistogram("test", "service");
+		for (long micros = 1; micros <= SAMPLES; micros++) {
+			histogram.record(micros * NANOS_PER_MICRO, false);
+		}
+
+		LatencyStats stats = histogram.getStats();
+
+		assertThat(stats.getCount()).isEqualTo(SAMPLES);
+		assertWithinBucket(stats.getP50(), P50);
+		assertWithinBucket(stats.getP90(), P90);
+		assertWithinBucket(stats.getP99(), P99);
+		assertWithinBucket(stats.getP999(), P999);
+		assertThat(stats.getMax()).isEqualTo(SAMPLES);
+	}
+
+	@Test
+	void percentileDoesNotExceedObservedMaximum() {
+		LatencyHistogram histogram = new LatencyHistogram("test", "service");
+		histogram.record(SAMPLES * NANOS_PER_MICRO, true);
+
+		LatencyStats stats = histogram.getStats();
+
+		assertThat(stats.getP50()).isEqualTo(SAMPLES);
+		assertThat(stats.getP999()).isEqualTo(SAMPLES);
+		assertThat(stats.getFailures()).isEqualTo(1);
+	}
+
+	@Test
+	void emptyHistogramReportsZeros() {
+		LatencyStats stats = new LatencyHistogram("test", "service").getStats();
+
+		assertThat(stats.getCount()).isZero();
+		assertThat(stats.getP99()).isZero();
+		assertThat(stats.getMean()).isZero();
+	}
+
+	private static void assertWithinBucket(long reported, long expected) {
+		long bucketEnd = LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(expected));
+		assertThat(reported).isBetween(expected, bucketEnd);
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.currency4.cache;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryQueryCacheTests {
+
+	private static final int MAX_ENTRIES = 100;
+	private static final long TIMEOUT_MS = 5000;
+	private static final int HOUR = 10;
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+	private static final LocalDate OTHER_DAY = DAY.plusDays(1);
+	private static final LocalDateTime CONVERTED_AT = DAY.atTime(HOUR, 0);
+
+	private final HistoryQueryCache cache = new HistoryQueryCache(MAX_ENTRIES, Duration.ofMinutes(1));
+	private final List<String> loaded = new CopyOnWriteArrayList<>();
+
+	@Test
+	void invalidationDropsOnlyAffectedDays() {
+		cache.getByDate(DAY, DAY.toString(), loader(DAY.toString()));
+		cache.getByDate(DAY, CONVERTED_AT.toString(), loader(CONVERTED_AT.toString()));
+		cache.getByDate(OTHER_DAY, OTHER_DAY.toString(), loader(OTHER_DAY.toString()));
+		loaded.clear();
+
+		cache.invalidate(List.of(history("USD", "EUR")));
+		cache.getByDate(DAY, DAY.toString(), loader(DAY.toString()));
+		cache.getByDate(DAY, CONVERTED_AT.toString(), loader(CONVERTED_AT.toString()));
+		cache.getByDate(OTHER_DAY, OTHER_DAY.toString(), loader(OTHER_DAY.toString()));
+
+		assertThat(loaded).containsExactly(DAY.toString(), CONVERTED_AT.toString());
+	}
+
+	@Test
+	void invalidationDropsOnlyAffectedCurrencies() {
+		for (String currency : List.of("USD", "GBP")) {
+			cache.get(HistoryQueryCache.Namespace.FROM, currency, loader("from:" + currency));
+			cache.get(HistoryQueryCache.Namespace.TO, currency, loader("to:" + currency));
+		}
+		loaded.clear();
+
+		cache.invalidate(List.of(history("usd", "gbp")));
+		for (String currency : List.of("USD", "GBP")) {
+			cache.get(HistoryQueryCache.Namespace.FROM, currency, loader("from:" + currency));
+			cache.get(HistoryQueryCache.Namespace.TO, currency, loader("to:" + currency));
+		}
+
+		assertThat(loaded).containsExactly("from:USD", "to:GBP");
+	}
+
+	@Test
+	void repeatedRequestIsServedFromCache() {
+		cache.getByDate(DAY, DAY.toString(), loader(DAY.toString()));
+		cache.getByDate(DAY, DAY.toString(), loader(DAY.toString()));
+
+		assertThat(loaded).containsExactly(DAY.toString());
+	}
+
+	@Test
+	void loadOverlappingInvalidationIsNotCached() {
+		cache.get(HistoryQueryCache.Namespace.FROM, "USD", () -> {
+			loaded.add("stale");
+			// Запись зафиксирована и сброшена, пока выборка ещё читала старую историю
+			cache.invalidate(List.of(history("USD", "EUR")));
+			return List.of();
+		});
+		cache.get(HistoryQueryCache.Namespace.FROM, "USD", loader("fresh"));
+		cache.get(HistoryQueryCache.Namespace.FROM, "USD", loader("cached"));
+
+		assertThat(loaded).containsExactly("stale", "fresh");
+	}
+
+	@Test
+	void failedLoadIsSharedWithWaitersWithoutRetry() throws InterruptedException {
+		List<Throwable> waiterErrors = new CopyOnWriteArrayList<>();
+		Thread[] waiter = new Thread[1];
+		Supplier<List<ConversionHistoryView>> failing = () -> {
+			loaded.add("failed");
+			waiter[0] = Thread.ofVirtual().start(() -> {
+				try {
+					cache.get(HistoryQueryCache.Namespace.TO, "EUR", loader("retry"));
+				} catch (IllegalStateException e) {
+					waiterErrors.add(e);
+				}
+			});
+			awaitWaiting(waiter[0]);
+			throw new IllegalStateException("db down");
+		};
+
+		assertThatThrownBy(() -> cache.get(HistoryQueryCache.Namespace.TO, "EUR", failing))
+				.isInstanceOf(IllegalStateException.class);
+		waiter[0].join(TIMEOUT_MS);
+
+		assertThat(waiterErrors).singleElement()
+				.extracting(Throwable::getMessage).isEqualTo("db down");
+		assertThat(loaded).containsExactly("failed");
+	}
+
+	@Test
+	void dayKeepsAtMostMaxEntries() throws InterruptedException {
+		for (int i = 0; i < MAX_ENTRIES + MAX_ENTRIES; i++) {
+			cache.getByDate(DAY, Integer.toString(i), loader(Integer.toString(i)));
+		}
+
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (cache.size() > MAX_ENTRIES && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(cache.size()).isPositive().isLessThanOrEqualTo(MAX_ENTRIES);
+	}
+
+	// Ожидающий поток встал на future загрузки
+	private static void awaitWaiting(Thread thread) {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+			Thread.onSpinWait();
+		}
+	}
+
+	private Supplier<List<ConversionHistoryView>> loader(String name) {
+		return () -> {
+			loaded.add(name);
+			return List.of();
+		};
+	}
+
+	private static ConversionHistory history(String from, String to) {
+		User user = new User();
+		user.setId(1L);
+		ConversionHistory history = new ConversionHistory(from, to, 1, 1, user);
+		history.setConvertedAt(CONVERTED_AT);
+		return history;
+	}
+}
@@ -0,0 +1,135 @@
+package com.example.currency4.cache;
+
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+	private static final String KEY = "rates";
+	private static final String VALUE = "loaded";
+	private static final long WAIT_TIMEOUT_MS = 5000;
+	private static final long SHORT_WAIT_TIMEOUT_MS = 50;
+	private static final int SEQUENTIAL_CALLS = 2;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+	private final CountDownLatch entered = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@AfterEach
+	void stopExecutor() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentCallerReceivesLeaderResult() throws Exception {
+		SingleFlight<String, String> flight = newFlight(WAIT_TIMEOUT_MS);
+		Future<String> leader = startLeader(flight, blockingLoader(() -> VALUE));
+
+		Future<String> follower = executeWhileLeaderRuns(flight);
+
+		assertThat(leader.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo(VALUE);
+		assertThat(follower.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo(VALUE);
+		assertThat(loads).hasValue(1);
+		assertThat(flight.getStats().getExecutions()).isEqualTo(1);
+		assertThat(flight.getStats().getCoalesced()).isEqualTo(1);
+		assertThat(flight.getStats().getInFlight()).isZero();
+	}
+
+	@Test
+	void leaderExceptionIsPropagatedToWaiters() throws Exception {
+		SingleFlight<String, String> flight = newFlight(WAIT_TIMEOUT_MS);
+		IllegalStateException failure = new IllegalStateException("upstream is down");
+		startLeader(flight, blockingLoader(() -> {
+			throw failure;
+		}));
+
+		Future<String> follower = executeWhileLeaderRuns(flight);
+
+		assertThatThrownBy(() -> follower.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+				.hasCause(failure);
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void nextCallAfterCompletionLoadsAgain() {
+		SingleFlight<String, String> flight = newFlight(WAIT_TIMEOUT_MS);
+
+		for (int i = 0; i < SEQUENTIAL_CALLS; i++) {
+			flight.execute(KEY, countingLoader());
+		}
+
+		assertThat(loads).hasValue(SEQUENTIAL_CALLS);
+		assertThat(flight.getStats().getCoalesced()).isZero();
+	}
+
+	@Test
+	void waiterGivesUpAfterTimeout() throws Exception {
+		SingleFlight<String, String> flight = newFlight(SHORT_WAIT_TIMEOUT_MS);
+		startLeader(flight, blockingLoader(() -> VALUE));
+		assertThat(entered.await(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+
+		assertThatThrownBy(() -> flight.execute(KEY, countingLoader()))
+				.isInstanceOf(ServiceOverloadedException.class);
+		assertThat(flight.getStats().getWaiterTimeouts()).isEqualTo(1);
+	}
+
+	private static SingleFlight<String, String> newFlight(long waitTimeoutMs) {
+		return new SingleFlight<>("test", Duration.ofMillis(waitTimeoutMs));
+	}
+
+	private Future<String> startLeader(SingleFlight<String, String> flight, Supplier<String> loader) {
+		return executor.submit(() -> flight.execute(KEY, loader));
+	}
+
+	// Второй вызов идёт из потока теста, пока лидер ждёт release; ведомого отпускаем,
+	// только когда он точно встал в ожидание, иначе он мог бы сам стать лидером
+	private Future<String> executeWhileLeaderRuns(SingleFlight<String, String> flight) throws Exception {
+		assertThat(entered.await(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+		ExecutorService follower = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> result = follower.submit(() -> flight.execute(KEY, countingLoader()));
+			while (flight.getStats().getCoalesced() == 0) {
+				Thread.onSpinWait();
+			}
+			release.countDown();
+			return result;
+		} finally {
+			follower.shutdown();
+		}
+	}
+
+	private Supplier<String> blockingLoader(Supplier<String> result) {
+		return () -> {
+			loads.incrementAndGet();
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return result.get();
+		};
+	}
+
+	private Supplier<String> countingLoader() {
+		return () -> {
+			loads.incrementAndGet();
+			return VALUE;
+		};
+	}
+}
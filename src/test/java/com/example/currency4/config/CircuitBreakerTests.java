@@ -0,0 +1,100 @@
+package com.example.currency4.config;
+
+import com.example.currency4.config.CircuitBreaker.State;
+import com.example.currency4.exceptions.CircuitOpenException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTests {
+
+	private static final int FAILURE_THRESHOLD = 2;
+	private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+	private static final String RESULT = "rates";
+
+	private final AtomicLong now = new AtomicLong();
+	private final CircuitBreaker breaker = new CircuitBreaker("upstream", FAILURE_THRESHOLD,
+			OPEN_DURATION, now::get);
+
+	@Test
+	void opensAfterThresholdAndClosesAfterSuccessfulTrial() {
+		failTimes(FAILURE_THRESHOLD);
+		assertThat(breaker.getState()).isEqualTo(State.OPEN);
+		assertThatThrownBy(() -> breaker.call(() -> RESULT)).isInstanceOf(CircuitOpenException.class);
+
+		waitOutPause();
+		assertThat(breaker.call(() -> RESULT)).isEqualTo(RESULT);
+
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(breaker.getStats().getOpened()).isEqualTo(1);
+		assertThat(breaker.getStats().getRejected()).isEqualTo(1);
+	}
+
+	@Test
+	void failedTrialReopensForAnotherPause() {
+		failTimes(FAILURE_THRESHOLD);
+		waitOutPause();
+
+		failTimes(1);
+
+		assertThat(breaker.getState()).isEqualTo(State.OPEN);
+		assertThatThrownBy(() -> breaker.call(() -> RESULT)).isInstanceOf(CircuitOpenException.class);
+		waitOutPause();
+		assertThat(breaker.call(() -> RESULT)).isEqualTo(RESULT);
+	}
+
+	@Test
+	void trialBlocksOtherCallsUntilItCompletes() {
+		failTimes(FAILURE_THRESHOLD);
+		waitOutPause();
+
+		String result = breaker.call(() -> {
+			assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+			assertThatThrownBy(() -> breaker.call(() -> RESULT))
+					.isInstanceOf(CircuitOpenException.class);
+			return RESULT;
+		});
+
+		assertThat(result).isEqualTo(RESULT);
+		assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	void errorInTrialReleasesIt() {
+		failTimes(FAILURE_THRESHOLD);
+		waitOutPause();
+
+		assertThatThrownBy(() -> breaker.call(failing(new StackOverflowError())))
+				.isInstanceOf(StackOverflowError.class);
+		assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+		waitOutPause();
+		assertThat(breaker.call(() -> RESULT)).isEqualTo(RESULT);
+	}
+
+	private void failTimes(int times) {
+		for (int i = 0; i < times; i++) {
+			IllegalStateException failure = new IllegalStateException("upstream is down");
+			assertThatThrownBy(() -> breaker.call(failing(failure)))
+					.isInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	private void waitOutPause() {
+		now.addAndGet(OPEN_DURATION.toNanos());
+	}
+
+	private static Supplier<String> failing(Throwable failure) {
+		return () -> {
+			if (failure instanceof Error error) {
+				throw error;
+			}
+			throw (RuntimeException) failure;
+		};
+	}
+}
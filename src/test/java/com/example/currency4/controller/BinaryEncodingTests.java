@@ -0,0 +1,113 @@
+package com.example.currency4.controller;
+
+import com.example.currency4.client.CborResponseDecoder;
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.dto.HistoryCursorPage;
+import com.example.currency4.entity.CurrencyRate;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class BinaryEncodingTests {
+
+	private static final int ROWS = 30;
+	private static final int PAGE_SIZE = 5;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private final CborResponseDecoder decoder = new CborResponseDecoder();
+
+	private long userId;
+
+	@BeforeEach
+	void seedHistory() {
+		userId = jdbcTemplate.queryForObject(
+				"INSERT INTO users (username) VALUES ('binary-encoding-test') RETURNING id",
+				Long.class);
+		// Дробные секунды и полночь: массив даты в CBOR укорачивается,
+		// если секунд и наносекунд нет
+		jdbcTemplate.update("INSERT INTO conversion_history (from_currency, to_currency, "
+				+ "amount, converted_amount, converted_at, notes, status, user_id, "
+				+ "from_rate, to_rate) "
+				+ "SELECT 'BEA', 'BEB', i, i * 2, "
+				+ "timestamp '2024-03-01 00:00:00' + i * interval '1.25 second', "
+				+ "CASE WHEN i % 2 = 0 THEN 'note ' || i END, 'COMPLETED', ?, 1.0, 2.0 "
+				+ "FROM generate_series(0, ?) AS i", userId, ROWS - 1);
+		jdbcTemplate.update("INSERT INTO currency_rate (currency_code, rate, last_updated, source) "
+				+ "VALUES ('BEA', 1.5, timestamp '2024-03-01 12:30:00', 'test') "
+				+ "ON CONFLICT DO NOTHING");
+		cacheManager.getCache("currencyRateCache").clear();
+	}
+
+	@Test
+	void historyDecodesToSameViewsAsJson() throws Exception {
+		String path = "/api/history/user/" + userId;
+		byte[] cbor = fetch(path, CborResponseDecoder.MEDIA_TYPE);
+		byte[] json = fetch(path, "application/json");
+
+		List<ConversionHistoryView> fromJson = objectMapper.readValue(json, new TypeReference<>() {
+		});
+		assertThat(fromJson).hasSize(ROWS);
+		assertThat(decoder.readHistory(cbor)).isEqualTo(fromJson);
+		assertThat(cbor.length).isLessThan(json.length);
+	}
+
+	@Test
+	void jsonStaysDefaultWithoutAccept() throws Exception {
+		mockMvc.perform(get("/api/history/user/" + userId))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/json"));
+	}
+
+	@Test
+	void cursorPageAndRatesDecode() throws Exception {
+		byte[] cursorPage = fetch("/api/history/cursor?size=" + PAGE_SIZE,
+				CborResponseDecoder.MEDIA_TYPE);
+		HistoryCursorPage page = decoder.readCursorPage(new ByteArrayInputStream(cursorPage));
+		assertThat(page.getItems()).hasSize(PAGE_SIZE);
+		assertThat(page.getNextCursor()).isNotNull();
+
+		List<CurrencyRate> rates = decoder.readRates(fetch("/api/currency-rates",
+				CborResponseDecoder.MEDIA_TYPE));
+		assertThat(rates).anySatisfy(rate -> assertThat(rate.getCurrencyCode()).isEqualTo("BEA"));
+		assertThat(rates).allSatisfy(rate -> assertThat(rate.getLastUpdated()).isNotNull());
+	}
+
+	private byte[] fetch(String path, String mediaType) throws Exception {
+		MvcResult result = mockMvc.perform(get(path).header("Accept", mediaType))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(mediaType))
+				.andReturn();
+		return result.getResponse().getContentAsByteArray();
+	}
+}
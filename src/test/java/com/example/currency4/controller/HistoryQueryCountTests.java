@@ -0,0 +1,80 @@
+package com.example.currency4.controller;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@Transactional
+class HistoryQueryCountTests {
+
+	// Вся выборка истории вместе с пользователем и курсами — один запрос
+	private static final long MAX_STATEMENTS = 1;
+	private static final int ROWS = 20;
+	private static final double TO_RATE_RATIO = 2.0;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private HistoryQueryCache historyQueryCache;
+
+	private Statistics statistics;
+	private long userId;
+
+	@BeforeEach
+	void seedHistory() {
+		userId = jdbcTemplate.queryForObject("INSERT INTO users (username) "
+				+ "VALUES ('query-count-test') RETURNING id", Long.class);
+		long snapshotId = jdbcTemplate.queryForObject("INSERT INTO rate_snapshot (base, fetched_at) "
+				+ "VALUES ('USD', now()) RETURNING id", Long.class);
+		for (int i = 0; i < ROWS; i++) {
+			jdbcTemplate.update("INSERT INTO conversion_history (from_currency, to_currency, "
+					+ "amount, converted_amount, converted_at, status, user_id, "
+					+ "rate_snapshot_id, from_rate, to_rate) "
+					+ "VALUES ('QCA', 'QCB', ?, ?, now(), 'COMPLETED', ?, ?, 1.0, 2.0)",
+					i + 1.0, (i + 1.0) * TO_RATE_RATIO, userId, snapshotId);
+		}
+		historyQueryCache.invalidateAll();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void historyByCurrencyUsesFixedNumberOfStatements() throws Exception {
+		mockMvc.perform(get("/api/history").param("currency", "QCA")).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+	}
+
+	@Test
+	void historyByUserUsesFixedNumberOfStatements() throws Exception {
+		mockMvc.perform(get("/api/history/user/{userId}", userId)).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+	}
+
+	@Test
+	void allConversionHistoriesUseFixedNumberOfStatements() throws Exception {
+		mockMvc.perform(get("/api/conversion-histories")).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+	}
+}
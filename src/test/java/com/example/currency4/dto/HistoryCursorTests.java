@@ -0,0 +1,44 @@
+package com.example.currency4.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTests {
+
+	private static final LocalDateTime CONVERTED_AT =
+			LocalDateTime.of(2024, 1, 1, 10, 30, 15, 123_456_000);
+	private static final String[] MALFORMED = {"2024-01-01T10:30", "not-a-date|42", "2024-01-01T10:30|x"};
+	private static final long ID = 42;
+
+	@Test
+	void decodeRestoresEncodedPosition() {
+		HistoryCursor decoded = HistoryCursor.decode(new HistoryCursor(CONVERTED_AT, ID).encode());
+
+		assertThat(decoded.getConvertedAt()).isEqualTo(CONVERTED_AT);
+		assertThat(decoded.getId()).isEqualTo(ID);
+	}
+
+	@Test
+	void encodedCursorIsUrlSafe() {
+		assertThat(new HistoryCursor(CONVERTED_AT, Long.MAX_VALUE).encode())
+				.matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		for (String raw : MALFORMED) {
+			String token = Base64.getUrlEncoder()
+					.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+			assertThatThrownBy(() -> HistoryCursor.decode(token))
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+		assertThatThrownBy(() -> HistoryCursor.decode("%%%"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,246 @@
+package com.example.currency4.loadtest;
+
+import com.example.currency4.Currency4Application;
+import com.example.currency4.aspect.LatencyHistogram;
+import com.example.currency4.model.LatencyStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Поднимает встроенный Postgres, заглушку Open Exchange Rates и приложение с профилем loadtest,
+// затем по очереди нагружает эндпоинты на каждом уровне параллелизма замкнутым циклом:
+// каждый из N клиентов отправляет следующий запрос сразу после ответа на предыдущий.
+// Настройки — системные свойства loadtest.*, см. docs/load-testing.md
+public final class LoadTestDriver {
+
+	private static final String[] CURRENCIES = {
+			"USD", "EUR", "GBP", "JPY", "CHF", "CNY", "RUB", "BYN", "PLN", "KZT"};
+	private static final int PAGE_SIZE = 20;
+	private static final int MAX_PAGE = 50;
+	private static final int MAX_AMOUNT = 10_000;
+	private static final long DEFAULT_WARMUP_SECONDS = 5;
+	private static final long DEFAULT_DURATION_SECONDS = 20;
+	private static final int DEFAULT_HISTORY_ROWS = 10_000;
+	private static final long DEFAULT_STUB_LATENCY_MS = 50;
+	private static final long DEFAULT_STUB_JITTER_MS = 20;
+	private static final long CONNECT_TIMEOUT_SECONDS = 5;
+	private static final long REQUEST_TIMEOUT_SECONDS = 30;
+	// Запас на завершение запросов, начатых до дедлайна
+	private static final long SHUTDOWN_GRACE_SECONDS = 60;
+	private static final int HTTP_STATUS_CLASS = 100;
+	private static final int HTTP_SUCCESS_CLASS = 2;
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private LoadTestDriver() {
+	}
+
+	enum Endpoint {
+		CONVERT {
+			@Override
+			HttpRequest.Builder request(URI base, ThreadLocalRandom random) {
+				String body = String.format(Locale.ROOT,
+						"{\"from\":\"%s\",\"to\":\"%s\",\"amount\":%d}",
+						randomCurrency(random), randomCurrency(random),
+						random.nextInt(1, MAX_AMOUNT));
+				return HttpRequest.newBuilder(base.resolve("/api/convert"))
+						.header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofString(body));
+			}
+		},
+		HISTORY {
+			@Override
+			HttpRequest.Builder request(URI base, ThreadLocalRandom random) {
+				return HttpRequest.newBuilder(base.resolve("/api/history?currency="
+						+ randomCurrency(random)));
+			}
+		},
+		PAGED {
+			@Override
+			HttpRequest.Builder request(URI base, ThreadLocalRandom random) {
+				return HttpRequest.newBuilder(base.resolve("/api/history/paged?page="
+						+ random.nextInt(MAX_PAGE) + "&size=" + PAGE_SIZE));
+			}
+		};
+
+		abstract HttpRequest.Builder request(URI base, ThreadLocalRandom random);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int[] concurrencyLevels = Arrays.stream(System.getProperty("loadtest.concurrency",
+						"1,8,32,64").split(","))
+				.map(String::trim)
+				.mapToInt(Integer::parseInt)
+				.toArray();
+		List<Endpoint> endpoints = Arrays.stream(System.getProperty("loadtest.endpoints",
+						"convert,history,paged").split(","))
+				.map(name -> Endpoint.valueOf(name.trim().toUpperCase(Locale.ROOT)))
+				.toList();
+		Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds",
+				DEFAULT_WARMUP_SECONDS));
+		Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds",
+				DEFAULT_DURATION_SECONDS));
+		int historyRows = Integer.getInteger("loadtest.history-rows", DEFAULT_HISTORY_ROWS);
+		long stubLatencyMs = Long.getLong("loadtest.stub.latency-ms", DEFAULT_STUB_LATENCY_MS);
+		long stubJitterMs = Long.getLong("loadtest.stub.jitter-ms", DEFAULT_STUB_JITTER_MS);
+		double stubFailureRate = Double.parseDouble(
+				System.getProperty("loadtest.stub.failure-rate", "0"));
+		Path reportDirectory = Path.of(System.getProperty("loadtest.report-dir",
+				"target/loadtest"));
+
+		try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+			 OpenExchangeRatesStub stub = OpenExchangeRatesStub.start(stubLatencyMs, stubJitterMs,
+					 stubFailureRate)) {
+			// Аргументы командной строки перекрывают application.properties,
+			// в отличие от default properties
+			String jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+			List<String> applicationArgs = new ArrayList<>(List.of(
+					"--spring.datasource.url=" + jdbcUrl,
+					"--spring.datasource.username=postgres",
+					"--spring.datasource.password=postgres",
+					"--open.exchange.api.url=" + stub.getBaseUrl(),
+					"--open.exchange.api.key=loadtest"));
+			applicationArgs.addAll(List.of(args));
+			ConfigurableApplicationContext context =
+					new SpringApplicationBuilder(Currency4Application.class)
+					.profiles("loadtest")
+					.run(applicationArgs.toArray(String[]::new));
+			try {
+				seed(context.getBean(JdbcTemplate.class), historyRows);
+				int port = context.getEnvironment()
+						.getRequiredProperty("local.server.port", Integer.class);
+				URI base = URI.create("http://localhost:" + port);
+
+				List<LoadTestResult> results = new ArrayList<>();
+				for (Endpoint endpoint : endpoints) {
+					for (int concurrency : concurrencyLevels) {
+						run(base, endpoint, concurrency, warmup);
+						LoadTestResult result =
+								run(base, endpoint, concurrency, duration);
+						results.add(result);
+						print(result);
+					}
+				}
+				System.out.printf("Upstream stub: %d served, %d failed%n", stub.getServed(),
+						stub.getFailed());
+				writeReport(reportDirectory, results, stub);
+			} finally {
+				context.close();
+			}
+		}
+	}
+
+	// Пользователь 1 нужен /api/convert; история — для выборок по валюте
+	// и постраничного чтения
+	private static void seed(JdbcTemplate jdbcTemplate, int historyRows) {
+		jdbcTemplate.update("INSERT INTO users (id, username) VALUES (1, 'loadtest') "
+				+ "ON CONFLICT DO NOTHING");
+		jdbcTemplate.update("""
+				INSERT INTO conversion_history (from_currency, to_currency, amount,
+					converted_amount, converted_at, notes, status, user_id)
+				SELECT codes[1 + i % array_length(codes, 1)],
+					   codes[1 + (i / 7) % array_length(codes, 1)],
+					   i % 1000 + 1, (i % 1000 + 1) * 0.9,
+					   now() - i * interval '1 minute',
+					   'Load test', 'COMPLETED', 1
+				FROM generate_series(1, ?) AS i, (SELECT ?::varchar[] AS codes) AS c
+				""", historyRows, CURRENCIES);
+	}
+
+	private static LoadTestResult run(URI base, Endpoint endpoint, int concurrency, Duration duration)
+			throws InterruptedException {
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+				.build();
+		String name = endpoint.name().toLowerCase(Locale.ROOT);
+		LatencyHistogram histogram = new LatencyHistogram(name, "loadtest");
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+		long start = System.nanoTime();
+		long deadline = start + duration.toNanos();
+		for (int i = 0; i < concurrency; i++) {
+			workers.execute(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (System.nanoTime() < deadline) {
+					HttpRequest request = endpoint.request(base, random)
+							.timeout(Duration.ofSeconds(REQUEST_TIMEOUT_SECONDS))
+							.build();
+					long sent = System.nanoTime();
+					boolean failed;
+					try {
+						HttpResponse<Void> response = client.send(request,
+								HttpResponse.BodyHandlers.discarding());
+						int statusClass = response.statusCode() / HTTP_STATUS_CLASS;
+						failed = statusClass != HTTP_SUCCESS_CLASS;
+					} catch (IOException e) {
+						failed = true;
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					histogram.record(System.nanoTime() - sent, failed);
+				}
+			});
+		}
+		workers.shutdown();
+		if (!workers.awaitTermination(duration.toSeconds() + SHUTDOWN_GRACE_SECONDS,
+				TimeUnit.SECONDS)) {
+			workers.shutdownNow();
+		}
+		double elapsedSeconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+
+		LatencyStats stats = histogram.getStats();
+		return new LoadTestResult(name, concurrency, stats.getCount(), stats.getFailures(),
+				stats.getCount() / elapsedSeconds, stats.getP50() / MICROS_PER_MILLI,
+				stats.getP99() / MICROS_PER_MILLI, stats.getP999() / MICROS_PER_MILLI,
+				stats.getMax() / MICROS_PER_MILLI);
+	}
+
+	private static void print(LoadTestResult result) {
+		System.out.printf(Locale.ROOT, "%-8s c=%-4d %9d req %6d err %10.1f req/s"
+				+ "  p50 %8.2f ms  p99 %8.2f ms  p999 %8.2f ms  max %8.2f ms%n",
+				result.endpoint(), result.concurrency(), result.requests(), result.errors(),
+				result.throughput(), result.p50Millis(), result.p99Millis(),
+				result.p999Millis(), result.maxMillis());
+	}
+
+	private static void writeReport(Path directory, List<LoadTestResult> results,
+			OpenExchangeRatesStub stub) throws IOException {
+		Files.createDirectories(directory);
+		String timestamp = String.format(Locale.ROOT, "%1$tY%1$tm%1$td-%1$tH%1$tM%1$tS",
+				LocalDateTime.now());
+		Path file = directory.resolve("report-" + timestamp + ".json");
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("results", results);
+		report.put("upstreamServed", stub.getServed());
+		report.put("upstreamFailed", stub.getFailed());
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+		System.out.println("Report written to " + file.toAbsolutePath());
+	}
+
+	private static String randomCurrency(ThreadLocalRandom random) {
+		return CURRENCIES[random.nextInt(CURRENCIES.length)];
+	}
+}
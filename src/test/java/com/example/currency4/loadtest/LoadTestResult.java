@@ -0,0 +1,6 @@
+package com.example.currency4.loadtest;
+
+// Задержки в миллисекундах; ошибка — любой ответ кроме 2xx или исключение клиента
+record LoadTestResult(String endpoint, int concurrency, long requests, long errors, double throughput,
+		double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+}
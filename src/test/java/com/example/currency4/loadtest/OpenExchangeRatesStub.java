@@ -0,0 +1,136 @@
+package com.example.currency4.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Заглушка GET /latest.json в том же процессе: задержка latency ± jitter,
+// доля ответов 503 — failureRate
+final class OpenExchangeRatesStub implements AutoCloseable {
+
+	private static final int CURRENCY_COUNT = 170;
+	private static final String[] COMMON_CODES = {
+			"USD", "EUR", "GBP", "JPY", "CHF", "CNY", "RUB", "BYN", "PLN", "KZT"};
+	private static final int STATUS_OK = 200;
+	private static final int STATUS_UNAVAILABLE = 503;
+	private static final String FAILURE_BODY =
+			"{\"error\":true,\"status\":503,\"message\":\"stub_failure\"}";
+	private static final int RESPONSE_CAPACITY = 8192;
+	private static final long MILLIS_PER_SECOND = 1000;
+	// Курсы растут с номером валюты и каждый раз сдвигаются не больше чем на 0,1%
+	private static final double RATE_STEP = 0.37;
+	private static final double MAX_DRIFT = 0.001;
+	private static final int LETTERS = 26;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long latencyMs;
+	private final long jitterMs;
+	private final double failureRate;
+	private final AtomicLong served = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	private OpenExchangeRatesStub(long latencyMs, long jitterMs, double failureRate)
+			throws IOException {
+		if (failureRate < 0 || failureRate > 1) {
+			throw new IllegalArgumentException("Failure rate must be between 0 and 1");
+		}
+		this.latencyMs = latencyMs;
+		this.jitterMs = jitterMs;
+		this.failureRate = failureRate;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/latest.json", this::handleLatest);
+	}
+
+	static OpenExchangeRatesStub start(long latencyMs, long jitterMs, double failureRate)
+			throws IOException {
+		OpenExchangeRatesStub stub = new OpenExchangeRatesStub(latencyMs, jitterMs, failureRate);
+		stub.server.start();
+		return stub;
+	}
+
+	String getBaseUrl() {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+	}
+
+	long getServed() {
+		return served.get();
+	}
+
+	long getFailed() {
+		return failed.get();
+	}
+
+	private void handleLatest(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long jitter = jitterMs > 0 ? random.nextLong(-jitterMs, jitterMs + 1) : 0;
+			long delay = latencyMs + jitter;
+			if (delay > 0) {
+				Thread.sleep(delay);
+			}
+			if (random.nextDouble() < failureRate) {
+				failed.incrementAndGet();
+				send(exchange, STATUS_UNAVAILABLE, FAILURE_BODY);
+				return;
+			}
+			served.incrementAndGet();
+			send(exchange, STATUS_OK, latestJson(random));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Курсы слегка меняются от ответа к ответу, чтобы обновления доходили до записи в БД
+	private static String latestJson(ThreadLocalRandom random) {
+		StringBuilder json = new StringBuilder(RESPONSE_CAPACITY);
+		json.append("{\"disclaimer\":\"Load test stub\",\"license\":\"none\",\"timestamp\":")
+				.append(System.currentTimeMillis() / MILLIS_PER_SECOND)
+				.append(",\"base\":\"USD\",\"rates\":{");
+		for (int i = 0; i < CURRENCY_COUNT; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			double drift = 1 + random.nextDouble(-MAX_DRIFT, MAX_DRIFT);
+			double rate = i == 0 ? 1.0 : (1 + i * RATE_STEP) * drift;
+			json.append('"').append(codeAt(i)).append("\":")
+					.append(String.format(Locale.ROOT, "%.6f", rate));
+		}
+		return json.append("}}").toString();
+	}
+
+	private static String codeAt(int index) {
+		if (index < COMMON_CODES.length) {
+			return COMMON_CODES[index];
+		}
+		int i = index - COMMON_CODES.length;
+		return "X" + (char) ('A' + i / LETTERS % LETTERS) + (char) ('A' + i % LETTERS);
+	}
+
+	private static void send(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.currency4.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateSeriesTests {
+
+	private static final long BUCKET = 10;
+	private static final long HALF_BUCKET = BUCKET / 2;
+	// Больше начальной ёмкости, чтобы массивы успели перевыделиться
+	private static final int MANY_POINTS = 100;
+
+	private static final long[] TIMESTAMPS = {10, 20, 30};
+	private static final double[] RATES = {1.0, 2.0, 3.0};
+
+	// Граница хранения между второй и третьей точкой: вторая остаётся как курс на границе
+	private static final long[] RETAINED_TIMESTAMPS = {0, 10, 20, 30};
+	private static final double[] RETAINED_RATES = {1.0, 2.0, 3.0, 4.0};
+	private static final long RETAIN_FROM = 15;
+
+	// Два полных интервала до границы прореживания и одна точка после неё
+	private static final long[] DOWNSAMPLED_TIMESTAMPS = {0, 1, 2, 10, 11, 20};
+	private static final double[] DOWNSAMPLED_RATES = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0};
+	private static final long DOWNSAMPLE_BEFORE = 20;
+	private static final int[] KEPT_AFTER_DOWNSAMPLING = {2, 4, 5};
+
+	@Test
+	void rateAsOfFindsPointInEffectAtBoundaries() {
+		RateSeries series = series(TIMESTAMPS, RATES);
+
+		assertThat(series.rateAsOf(TIMESTAMPS[0] - 1)).isNaN();
+		for (int i = 0; i < TIMESTAMPS.length; i++) {
+			assertThat(series.rateAsOf(TIMESTAMPS[i])).isEqualTo(RATES[i]);
+			assertThat(series.rateAsOf(TIMESTAMPS[i] + BUCKET - 1)).isEqualTo(RATES[i]);
+		}
+		assertThat(series.rateAsOf(Long.MAX_VALUE)).isEqualTo(RATES[RATES.length - 1]);
+		assertThat(RateSeries.empty().rateAsOf(TIMESTAMPS[0])).isNaN();
+	}
+
+	@Test
+	void rateAsOfSearchesAcrossGrownArrays() {
+		RateSeries series = RateSeries.empty();
+		for (int i = 0; i < MANY_POINTS; i++) {
+			series = series.append(i * BUCKET, i);
+		}
+
+		assertThat(series.size()).isEqualTo(MANY_POINTS);
+		for (int i = 0; i < MANY_POINTS; i++) {
+			assertThat(series.rateAsOf(i * BUCKET + HALF_BUCKET)).isEqualTo(i);
+		}
+	}
+
+	@Test
+	void olderVersionDoesNotSeeLaterPoints() {
+		RateSeries older = RateSeries.empty().append(TIMESTAMPS[0], RATES[0]);
+		RateSeries newer = older.append(TIMESTAMPS[1], RATES[1]);
+
+		assertThat(older.size()).isEqualTo(1);
+		assertThat(older.rateAsOf(TIMESTAMPS[1])).isEqualTo(RATES[0]);
+		assertThat(newer.rateAsOf(TIMESTAMPS[1])).isEqualTo(RATES[1]);
+	}
+
+	@Test
+	void unchangedRateIsNotStoredAgain() {
+		RateSeries series = RateSeries.empty().append(TIMESTAMPS[0], RATES[0])
+				.append(TIMESTAMPS[1], RATES[0]);
+
+		assertThat(series.size()).isEqualTo(1);
+		assertThat(series.rateAsOf(TIMESTAMPS[1])).isEqualTo(RATES[0]);
+	}
+
+	@Test
+	void outOfOrderPointIsRejected() {
+		RateSeries series = RateSeries.empty().append(TIMESTAMPS[1], RATES[0]);
+
+		assertThatThrownBy(() -> series.append(TIMESTAMPS[0], RATES[1]))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void compactionKeepsRateInEffectAtRetentionBoundary() {
+		RateSeries compacted = series(RETAINED_TIMESTAMPS, RETAINED_RATES)
+				.compact(RETAIN_FROM, Long.MIN_VALUE, BUCKET);
+
+		assertThat(compacted.size()).isEqualTo(RETAINED_TIMESTAMPS.length - 1);
+		assertThat(compacted.firstTimestamp()).isEqualTo(RETAINED_TIMESTAMPS[1]);
+		assertThat(compacted.rateAsOf(RETAIN_FROM)).isEqualTo(RETAINED_RATES[1]);
+		assertThat(compacted.rateAsOf(Long.MAX_VALUE))
+				.isEqualTo(RETAINED_RATES[RETAINED_RATES.length - 1]);
+	}
+
+	@Test
+	void compactionKeepsLastPointOfEachOldBucket() {
+		RateSeries compacted = series(DOWNSAMPLED_TIMESTAMPS, DOWNSAMPLED_RATES)
+				.compact(Long.MIN_VALUE, DOWNSAMPLE_BEFORE, BUCKET);
+
+		assertThat(compacted.size()).isEqualTo(KEPT_AFTER_DOWNSAMPLING.length);
+		for (int kept : KEPT_AFTER_DOWNSAMPLING) {
+			assertThat(compacted.rateAsOf(DOWNSAMPLED_TIMESTAMPS[kept]))
+					.isEqualTo(DOWNSAMPLED_RATES[kept]);
+		}
+		// Ранние точки интервала отброшены, поэтому до его последней точки курса нет
+		assertThat(compacted.rateAsOf(DOWNSAMPLED_TIMESTAMPS[1])).isNaN();
+	}
+
+	@Test
+	void compactedSeriesAcceptsNewPoints() {
+		RateSeries compacted = series(TIMESTAMPS, RATES)
+				.compact(Long.MIN_VALUE, Long.MIN_VALUE, BUCKET);
+		long next = compacted.lastTimestamp() + BUCKET;
+
+		RateSeries appended = compacted.append(next, RATES[0]);
+
+		assertThat(appended.size()).isEqualTo(TIMESTAMPS.length + 1);
+		assertThat(appended.rateAsOf(next)).isEqualTo(RATES[0]);
+		assertThat(appended.lastTimestamp()).isEqualTo(next);
+	}
+
+	private static RateSeries series(long[] timestamps, double[] rates) {
+		RateSeries series = RateSeries.empty();
+		for (int i = 0; i < timestamps.length; i++) {
+			series = series.append(timestamps[i], rates[i]);
+		}
+		return series;
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.currency4.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateTableTests {
+
+	private static final double EUR_RATE = 0.5;
+	// Больше, чем когда-то помещалось в кэш написаний
+	private static final int MANY_UNKNOWN = 5000;
+
+	private final RateTable table = RateTable.of(Map.of("USD", 1.0, "eur", EUR_RATE));
+
+	@Test
+	void anySpellingOfKnownCodeResolves() {
+		int eur = table.indexOf("EUR");
+
+		assertThat(eur).isNotEqualTo(RateTable.UNKNOWN);
+		assertThat(table.indexOf("eur")).isEqualTo(eur);
+		assertThat(table.indexOf("eUr")).isEqualTo(eur);
+		assertThat(table.codeOf(table.indexOf("eur"), "eur")).isEqualTo("EUR");
+		assertThat(table.rateAt(eur)).isEqualTo(EUR_RATE);
+	}
+
+	@Test
+	void unknownInputsDoNotCrowdOutKnownSpellings() {
+		for (int i = 0; i < MANY_UNKNOWN; i++) {
+			assertThat(table.indexOf("x" + i)).isEqualTo(RateTable.UNKNOWN);
+		}
+
+		assertThat(table.indexOf("usd")).isEqualTo(table.indexOf("USD"))
+				.isNotEqualTo(RateTable.UNKNOWN);
+		assertThat(table.indexOf("x0")).isEqualTo(RateTable.UNKNOWN);
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.currency4.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ConversionHistoryIndexTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void disableSequentialScans() {
+		// На почти пустой тестовой таблице планировщик всегда выбрал бы seq scan,
+		// поэтому проверяем, что для предиката вообще есть подходящий индекс
+		jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+	}
+
+	@Test
+	void timeRangeUsesConvertedAtIndex() {
+		assertThat(plan("SELECT * FROM conversion_history "
+				+ "WHERE converted_at >= '2025-01-01' AND converted_at < '2025-02-01' "
+				+ "ORDER BY converted_at, id LIMIT 100"))
+				.contains("idx_conversion_history_converted_at_id");
+	}
+
+	@Test
+	void keysetPageUsesConvertedAtIndex() {
+		assertThat(plan("SELECT * FROM conversion_history "
+				+ "WHERE converted_at >= '2025-01-01' "
+				+ "AND (converted_at > '2025-01-01' OR id > 42) "
+				+ "ORDER BY converted_at, id LIMIT 50"))
+				.contains("idx_conversion_history_converted_at_id");
+	}
+
+	@Test
+	void currencyPairRangeUsesPairIndex() {
+		// На пустой таблице индексы по паре и по целевой валюте стоят одинаково
+		// и выбор между ними случаен; со статистикой, где у всех строк одна
+		// целевая валюта, точнее индекс по паре
+		long userId = jdbcTemplate.queryForObject("INSERT INTO users (username) "
+				+ "VALUES ('index-test') RETURNING id", Long.class);
+		jdbcTemplate.update("INSERT INTO conversion_history (from_currency, to_currency, amount, "
+				+ "converted_amount, converted_at, user_id) "
+				+ "SELECT 'C' || (i % 50), 'EUR', 1, 1, "
+				+ "TIMESTAMP '2025-01-01' + i * INTERVAL '1 minute', ? "
+				+ "FROM generate_series(1, 5000) AS i", userId);
+		jdbcTemplate.execute("ANALYZE conversion_history");
+		assertThat(plan("SELECT * FROM conversion_history "
+				+ "WHERE from_currency = 'USD' AND to_currency = 'EUR' "
+				+ "AND converted_at >= '2025-01-01' AND converted_at < '2025-02-01'"))
+				.contains("idx_conversion_history_pair_converted_at");
+	}
+
+	@Test
+	void fromCurrencyLookupUsesPairIndex() {
+		assertThat(plan("SELECT * FROM conversion_history WHERE from_currency = 'USD'"))
+				.contains("idx_conversion_history_pair_converted_at");
+	}
+
+	@Test
+	void toCurrencyLookupUsesToIndex() {
+		assertThat(plan("SELECT * FROM conversion_history WHERE to_currency = 'EUR'"))
+				.contains("idx_conversion_history_to_converted_at");
+	}
+
+	@Test
+	void userRangeUsesUserIndex() {
+		assertThat(plan("SELECT * FROM conversion_history WHERE user_id = 1 "
+				+ "AND converted_at >= '2025-01-01' AND converted_at < '2025-02-01'"))
+				.contains("idx_conversion_history_user_converted_at");
+	}
+
+	private String plan(String sql) {
+		List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+		return String.join("\n", lines);
+	}
+}
@@ -0,0 +1,347 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversionJournalTests {
+
+	private static final int SEGMENT_SIZE = 4096;
+	// Заголовок сегмента: magic, версия формата, первый номер
+	private static final int SEGMENT_HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+	private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+	private static final int RECORDS = 5;
+	private static final int FULL_AND_BARE = 2;
+	private static final int MAX_READ = 1000;
+	private static final long APPLIED_SEQ = 3;
+	private static final long EARLIER_APPLIED_SEQ = 100;
+	// Чтобы записи занимали по несколько сегментов
+	private static final int SMALL_SEGMENT_SIZE = 256;
+	private static final int ROLLED_RECORDS = 20;
+	private static final int THREADS = 8;
+	private static final int APPENDS_PER_THREAD = 100;
+	private static final LocalDateTime CONVERTED_AT =
+			LocalDateTime.of(2024, 3, 1, 12, 30, 5, 123_456_789);
+	private static final double AMOUNT = 100.5;
+	private static final double CONVERTED_AMOUNT = 92.25;
+	private static final double FROM_RATE = 1.0;
+	private static final double TO_RATE = 0.918;
+	private static final long SNAPSHOT_ID = 42;
+	private static final long USER_ID = 7;
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void recordsSurviveReopenWithAllFields() {
+		try (ConversionJournal journal = open(0)) {
+			journal.append(history());
+			journal.append(bareHistory());
+		}
+
+		try (ConversionJournal journal = open(0)) {
+			List<ConversionHistory> records = journal.readDurable(MAX_READ);
+			assertThat(seqs(records)).containsExactlyElementsOf(range(1, FULL_AND_BARE));
+
+			ConversionHistory full = records.get(0);
+			assertThat(full.getFromCurrency()).isEqualTo("USD");
+			assertThat(full.getToCurrency()).isEqualTo("EUR");
+			assertThat(full.getAmount()).isEqualTo(AMOUNT);
+			assertThat(full.getConvertedAmount()).isEqualTo(CONVERTED_AMOUNT);
+			assertThat(full.getConvertedAt()).isEqualTo(CONVERTED_AT);
+			assertThat(full.getNotes()).isEqualTo("note, with «unicode»");
+			assertThat(full.getStatus()).isEqualTo("COMPLETED");
+			assertThat(full.getUser().getId()).isEqualTo(USER_ID);
+			assertThat(full.getRateSnapshotId()).isEqualTo(SNAPSHOT_ID);
+			assertThat(full.getFromRate()).isEqualTo(FROM_RATE);
+			assertThat(full.getToRate()).isEqualTo(TO_RATE);
+
+			ConversionHistory bare = records.get(1);
+			assertThat(bare.getNotes()).isNull();
+			assertThat(bare.getStatus()).isNull();
+			assertThat(bare.getRateSnapshotId()).isNull();
+			assertThat(bare.getFromRate()).isNull();
+			assertThat(bare.getToRate()).isNull();
+		}
+	}
+
+	@Test
+	void corruptTailIsTruncatedAndOverwritten() throws IOException {
+		writeRecords(RECORDS);
+		// Повреждён последний байт тела последней записи: CRC не сходится
+		int lastByte = endOfRecords() - 1;
+		writeAt(lastByte, new byte[] {(byte) ~readAt(lastByte)});
+
+		try (ConversionJournal journal = open(0)) {
+			assertThat(replayed(journal)).containsExactlyElementsOf(range(1, RECORDS - 1));
+			// Номер оборванной записи достаётся следующей
+			assertThat(journal.append(history())).isEqualTo(RECORDS);
+		}
+
+		try (ConversionJournal journal = open(0)) {
+			assertThat(replayed(journal)).containsExactlyElementsOf(range(1, RECORDS));
+		}
+	}
+
+	@Test
+	void partiallyWrittenRecordIsIgnored() throws IOException {
+		int lastRecordOffset = writeRecords(RECORDS);
+		// Длина успела попасть на диск, тело — нет
+		int bodyOffset = lastRecordOffset + RECORD_HEADER_BYTES;
+		writeAt(bodyOffset, new byte[endOfRecords() - bodyOffset]);
+
+		try (ConversionJournal journal = open(0)) {
+			assertThat(replayed(journal)).containsExactlyElementsOf(range(1, RECORDS - 1));
+			assertThat(journal.getWrittenSeq()).isEqualTo(RECORDS - 1);
+		}
+	}
+
+	@Test
+	void replayStartsAfterAppliedSeqInTheMiddleOfSegment() {
+		writeRecords(RECORDS);
+
+		try (ConversionJournal journal = open(APPLIED_SEQ)) {
+			assertThat(journal.getSegmentCount()).isOne();
+			assertThat(replayed(journal))
+					.containsExactlyElementsOf(range(APPLIED_SEQ + 1, RECORDS));
+			assertThat(journal.append(history())).isEqualTo(RECORDS + 1);
+		}
+	}
+
+	@Test
+	void seqContinuesAfterAppliedSeqWhenSegmentsAreGone() {
+		try (ConversionJournal journal = open(EARLIER_APPLIED_SEQ)) {
+			assertThat(journal.readDurable(MAX_READ)).isEmpty();
+			assertThat(journal.append(history())).isEqualTo(EARLIER_APPLIED_SEQ + 1);
+		}
+	}
+
+	@Test
+	void segmentsRollAndReplayedOnesAreReleased() throws IOException {
+		try (ConversionJournal journal = openSmall(0)) {
+			for (int i = 0; i < ROLLED_RECORDS; i++) {
+				journal.append(history());
+			}
+			int segments = journal.getSegmentCount();
+			assertThat(segments).isGreaterThan(1);
+			assertThat(segmentFiles()).hasSize(segments);
+
+			// Чтение переходит через границы сегментов без пропусков
+			List<ConversionHistory> records = journal.readDurable(MAX_READ);
+			assertThat(seqs(records)).containsExactlyElementsOf(range(1, ROLLED_RECORDS));
+
+			// Текущий сегмент остаётся, запечатанные и полностью применённые удаляются
+			journal.release(ROLLED_RECORDS);
+			assertThat(journal.getSegmentCount()).isOne();
+			assertThat(journal.getDeletedSegments()).isEqualTo(segments - 1);
+			assertThat(segmentFiles()).hasSize(1);
+		}
+
+		try (ConversionJournal journal = openSmall(ROLLED_RECORDS)) {
+			assertThat(journal.readDurable(MAX_READ)).isEmpty();
+			assertThat(journal.append(history())).isEqualTo(ROLLED_RECORDS + 1);
+		}
+	}
+
+	@Test
+	void releaseKeepsSegmentsWithUnappliedRecords() {
+		try (ConversionJournal journal = openSmall(0)) {
+			for (int i = 0; i < ROLLED_RECORDS; i++) {
+				journal.append(history());
+			}
+			int segments = journal.getSegmentCount();
+			journal.readDurable(MAX_READ);
+
+			journal.release(0);
+
+			assertThat(journal.getSegmentCount()).isEqualTo(segments);
+			assertThat(journal.getDeletedSegments()).isZero();
+		}
+	}
+
+	@Test
+	void batchAppendTakesConsecutiveSeqsAndOneSync() {
+		List<ConversionHistory> batch = Stream.generate(ConversionJournalTests::history)
+				.limit(ROLLED_RECORDS).toList();
+		try (ConversionJournal journal = openSmall(0)) {
+			assertThat(journal.appendAll(batch)).isEqualTo(1);
+
+			assertThat(journal.getSegmentCount()).isGreaterThan(1);
+			assertThat(journal.getDurableSeq()).isEqualTo(ROLLED_RECORDS);
+			assertThat(journal.getAppends()).isEqualTo(ROLLED_RECORDS);
+			assertThat(journal.getSyncs()).isOne();
+			assertThat(seqs(journal.readDurable(MAX_READ)))
+					.containsExactlyElementsOf(range(1, ROLLED_RECORDS));
+		}
+	}
+
+	@Test
+	void concurrentAppendsShareSyncs() throws Exception {
+		Set<Long> seqs = ConcurrentHashMap.newKeySet();
+		try (ConversionJournal journal = open(0)) {
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < THREADS; t++) {
+					futures.add(executor.submit(() -> appendAll(journal, seqs)));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+
+			long total = (long) THREADS * APPENDS_PER_THREAD;
+			assertThat(seqs).containsExactlyInAnyOrderElementsOf(range(1, total));
+			assertThat(journal.getAppends()).isEqualTo(total);
+			// Групповая фиксация: ожидающие потоки делят fsync первого
+			assertThat(journal.getSyncs()).isLessThan(total);
+			assertThat(replayed(journal)).containsExactlyElementsOf(range(1, total));
+		}
+	}
+
+	@Test
+	void segmentOfWrongSizeIsRejected() throws IOException {
+		writeRecords(1);
+
+		assertThatThrownBy(() -> openSmall(0))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("has size");
+	}
+
+	private static void appendAll(ConversionJournal journal, Set<Long> seqs) {
+		for (int i = 0; i < APPENDS_PER_THREAD; i++) {
+			long seq = journal.append(history());
+			// append возвращается только после fsync своей записи
+			assertThat(journal.getDurableSeq()).isGreaterThanOrEqualTo(seq);
+			seqs.add(seq);
+		}
+	}
+
+	private ConversionJournal open(long appliedSeq) {
+		return ConversionJournal.open(directory, SEGMENT_SIZE, appliedSeq);
+	}
+
+	private ConversionJournal openSmall(long appliedSeq) {
+		return ConversionJournal.open(directory, SMALL_SEGMENT_SIZE, appliedSeq);
+	}
+
+	// Пишет записи в новый журнал и возвращает смещение последней из них
+	private int writeRecords(int count) {
+		try (ConversionJournal journal = open(0)) {
+			for (int i = 0; i < count; i++) {
+				journal.append(history());
+			}
+		}
+		try {
+			int offset = SEGMENT_HEADER_BYTES;
+			int last = offset;
+			int length;
+			while ((length = ByteBuffer.wrap(readRange(offset, Integer.BYTES)).getInt()) != 0) {
+				last = offset;
+				offset += RECORD_HEADER_BYTES + length;
+			}
+			return last;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int endOfRecords() throws IOException {
+		int offset = SEGMENT_HEADER_BYTES;
+		int length;
+		while ((length = ByteBuffer.wrap(readRange(offset, Integer.BYTES)).getInt()) != 0) {
+			offset += RECORD_HEADER_BYTES + length;
+		}
+		return offset;
+	}
+
+	private byte readAt(int offset) throws IOException {
+		return readRange(offset, 1)[0];
+	}
+
+	private byte[] readRange(int offset, int length) throws IOException {
+		try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			channel.read(buffer, offset);
+			return buffer.array();
+		}
+	}
+
+	private void writeAt(int offset, byte[] bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(bytes), offset);
+		}
+	}
+
+	private Path onlySegment() throws IOException {
+		List<Path> files = segmentFiles();
+		assertThat(files).hasSize(1);
+		return files.get(0);
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith("segment-"))
+					.sorted()
+					.toList();
+		}
+	}
+
+	private static List<Long> replayed(ConversionJournal journal) {
+		return seqs(journal.readDurable(MAX_READ));
+	}
+
+	private static List<Long> seqs(List<ConversionHistory> records) {
+		return records.stream().map(ConversionHistory::getJournalSeq).toList();
+	}
+
+	private static List<Long> range(long from, long to) {
+		return LongStream.rangeClosed(from, to).boxed().toList();
+	}
+
+	private static ConversionHistory history() {
+		User user = new User();
+		user.setId(USER_ID);
+		ConversionHistory history = new ConversionHistory("USD", "EUR", AMOUNT, CONVERTED_AMOUNT,
+				user);
+		history.setConvertedAt(CONVERTED_AT);
+		history.setNotes("note, with «unicode»");
+		history.setRateSnapshotId(SNAPSHOT_ID);
+		history.setFromRate(FROM_RATE);
+		history.setToRate(TO_RATE);
+		return history;
+	}
+
+	private static ConversionHistory bareHistory() {
+		ConversionHistory history = history();
+		history.setNotes(null);
+		history.setStatus(null);
+		history.setRateSnapshotId(null);
+		history.setFromRate(null);
+		history.setToRate(null);
+		return history;
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.dto.RollupBucket;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import com.example.currency4.model.RollupDimension;
+import com.example.currency4.model.RollupGranularity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ConversionRollupTests {
+
+	private static final LocalDateTime HOUR = LocalDateTime.of(2023, 5, 1, 10, 0);
+	private static final double[] AMOUNTS = {10, 20, 30};
+	private static final double RATE = 1.1;
+	private static final int MAX_DELTAS = 10_000;
+	private static final String PAIR = "RTA/RTB";
+	private static final int LARGEST = AMOUNTS.length - 1;
+
+	@Autowired
+	private ConversionHistoryBatchRepository conversionHistoryBatchRepository;
+
+	@Autowired
+	private ConversionRollupRepository conversionRollupRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User user;
+	private List<ConversionHistory> histories;
+
+	@BeforeEach
+	void insertHistory() {
+		user = new User("rollup-test");
+		user.setId(jdbcTemplate.queryForObject(
+				"INSERT INTO users (username) VALUES ('rollup-test') RETURNING id",
+				Long.class));
+		histories = new ArrayList<>();
+		for (int i = 0; i < AMOUNTS.length; i++) {
+			ConversionHistory history = new ConversionHistory("RTA", "RTB", AMOUNTS[i],
+					AMOUNTS[i] * RATE, user);
+			history.setConvertedAt(HOUR.plusMinutes(i));
+			histories.add(history);
+		}
+		// Вставка истории пишет только вклады, агрегаты не трогает
+		conversionHistoryBatchRepository.insertAll(histories);
+		assertThat(pairBuckets()).isEmpty();
+		conversionRollupRepository.compact(MAX_DELTAS);
+	}
+
+	@Test
+	void insertedHistoryIsFoldedOnCompaction() {
+		assertThat(pairBuckets()).singleElement().satisfies(bucket -> {
+			assertThat(bucket.count()).isEqualTo(AMOUNTS.length);
+			assertThat(bucket.totalAmount()).isEqualTo(sum(AMOUNTS));
+			assertThat(bucket.minConvertedAmount()).isEqualTo(AMOUNTS[0] * RATE);
+			assertThat(bucket.maxConvertedAmount()).isEqualTo(AMOUNTS[LARGEST] * RATE);
+		});
+		assertThat(userBuckets()).singleElement()
+				.satisfies(bucket -> assertThat(bucket.count()).isEqualTo(AMOUNTS.length));
+		assertThat(conversionRollupRepository.countPendingDeltas()).isZero();
+	}
+
+	@Test
+	void subtractionRecomputesMinAndMax() {
+		ConversionHistory largest = histories.get(LARGEST);
+		conversionRollupRepository.subtractAll(List.of(largest));
+		jdbcTemplate.update("DELETE FROM conversion_history WHERE id = ?", largest.getId());
+
+		conversionRollupRepository.compact(MAX_DELTAS);
+
+		assertThat(pairBuckets()).singleElement().satisfies(bucket -> {
+			assertThat(bucket.count()).isEqualTo(LARGEST);
+			assertThat(bucket.totalAmount()).isEqualTo(sum(AMOUNTS) - largest.getAmount());
+			assertThat(bucket.maxConvertedAmount()).isEqualTo(AMOUNTS[LARGEST - 1] * RATE);
+		});
+	}
+
+	@Test
+	void subtractingUserRemovesItsBuckets() {
+		conversionRollupRepository.subtractUser(user.getId());
+		jdbcTemplate.update("DELETE FROM conversion_history WHERE user_id = ?", user.getId());
+
+		conversionRollupRepository.compact(MAX_DELTAS);
+
+		assertThat(userBuckets()).isEmpty();
+		assertThat(pairBuckets()).isEmpty();
+	}
+
+	@Test
+	void rebuildMatchesCompactedTotals() {
+		List<RollupBucket> compacted = pairBuckets();
+
+		conversionRollupRepository.rebuild(HOUR.toLocalDate().atStartOfDay(),
+				HOUR.toLocalDate().plusDays(1).atStartOfDay());
+
+		assertThat(pairBuckets()).isEqualTo(compacted);
+	}
+
+	private List<RollupBucket> pairBuckets() {
+		return conversionRollupRepository.findBuckets(RollupGranularity.HOUR, RollupDimension.PAIR,
+				PAIR, HOUR, HOUR.plusHours(1));
+	}
+
+	private List<RollupBucket> userBuckets() {
+		return conversionRollupRepository.findBuckets(RollupGranularity.DAY, RollupDimension.USER,
+				String.valueOf(user.getId()), HOUR.toLocalDate().atStartOfDay(),
+				HOUR.plusDays(1));
+	}
+
+	private static double sum(double[] values) {
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+}
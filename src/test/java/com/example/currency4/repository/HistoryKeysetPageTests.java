@@ -0,0 +1,62 @@
+package com.example.currency4.repository;
+
+import com.example.currency4.dto.ConversionHistoryView;
+import com.example.currency4.dto.HistoryCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class HistoryKeysetPageTests {
+
+	// Дата заведомо позже всех остальных строк, чтобы страницы содержали только строки теста
+	private static final LocalDateTime CONVERTED_AT = LocalDateTime.of(2999, 1, 1, 0, 0);
+	private static final int ROWS = 5;
+	private static final int PAGE_SIZE = 2;
+	private static final String INSERT_HISTORY = "INSERT INTO conversion_history (from_currency, "
+			+ "to_currency, amount, converted_amount, converted_at, user_id) "
+			+ "VALUES ('USD', 'EUR', 1, 1, ?, ?) RETURNING id";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ConversionHistoryViewRepository repository;
+
+	@Test
+	void rowsWithEqualTimestampsArePagedByIdWithoutGapsOrRepeats() {
+		long userId = jdbcTemplate.queryForObject("INSERT INTO users (username) "
+				+ "VALUES ('keyset-test') RETURNING id", Long.class);
+		List<Long> inserted = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			inserted.add(jdbcTemplate.queryForObject(INSERT_HISTORY, Long.class, CONVERTED_AT,
+					userId));
+		}
+
+		List<Long> paged = new ArrayList<>();
+		HistoryCursor cursor = new HistoryCursor(CONVERTED_AT.minusSeconds(1), 0);
+		List<ConversionHistoryView> page;
+		do {
+			page = repository.findPageAfter(cursor.getConvertedAt(), cursor.getId(),
+					PAGE_SIZE);
+			page.forEach(row -> paged.add(row.id()));
+			if (!page.isEmpty()) {
+				ConversionHistoryView last = page.get(page.size() - 1);
+				// Курсор проходит через строку так же, как между запросами клиента
+				String token = new HistoryCursor(last.convertedAt(), last.id()).encode();
+				cursor = HistoryCursor.decode(token);
+			}
+		} while (page.size() == PAGE_SIZE);
+
+		assertThat(paged).containsExactlyElementsOf(inserted);
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.currency4.service;
+
+import com.example.currency4.dto.BatchConvertResult;
+import com.example.currency4.dto.ConvertRequest;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import com.example.currency4.model.RateSnapshot;
+import com.example.currency4.repository.UserRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchConversionServiceTests {
+
+	private static final long SNAPSHOT_VERSION = 7;
+	private static final double EUR_RATE = 0.5;
+	private static final double AMOUNT = 10;
+	private static final long TIMEOUT_MS = 1000;
+	private static final int MAX_BATCH_SIZE = 100;
+
+	private final ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+	private final List<ConversionHistory> written = new ArrayList<>();
+	private final BatchConversionService service = new BatchConversionService(
+			new CurrencyService(null, null, null, null, "http://localhost", "", TIMEOUT_MS),
+			new FixedSnapshotService(new RateSnapshot(SNAPSHOT_VERSION, Instant.now(), "USD",
+					Map.of("USD", 1.0, "EUR", EUR_RATE))),
+			written::add, userRepository(), validatorFactory.getValidator(), MAX_BATCH_SIZE);
+
+	@AfterEach
+	void closeValidator() {
+		validatorFactory.close();
+	}
+
+	@Test
+	void unknownCurrencyFailsOnlyItsItemAndIsNotSaved() {
+		List<BatchConvertResult> results = service.convertAll(List.of(
+				request("usd", "EUR"), request("USD", "ZZZ"), request("XXX", "EUR")));
+
+		assertThat(results).extracting(BatchConvertResult::getStatus)
+				.containsExactly("COMPLETED", "FAILED", "FAILED");
+		assertThat(results.get(0).getConvertedAmount()).isEqualTo(AMOUNT * EUR_RATE);
+		assertThat(results).extracting(BatchConvertResult::getError)
+				.containsExactly(null, "Unknown currency: ZZZ", "Unknown currency: XXX");
+
+		assertThat(written).singleElement().satisfies(history -> {
+			assertThat(history.getFromCurrency()).isEqualTo("USD");
+			assertThat(history.getToRate()).isEqualTo(EUR_RATE);
+			assertThat(history.getRateSnapshotId()).isEqualTo(SNAPSHOT_VERSION);
+		});
+	}
+
+	private static ConvertRequest request(String from, String to) {
+		ConvertRequest request = new ConvertRequest();
+		request.setFrom(from);
+		request.setTo(to);
+		request.setAmount(AMOUNT);
+		return request;
+	}
+
+	// Сервису нужен только findById
+	private static UserRepository userRepository() {
+		User user = new User();
+		user.setId(1L);
+		return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+				new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+					if (!"findById".equals(method.getName())) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					return Optional.of(user);
+				});
+	}
+
+	private static final class FixedSnapshotService extends RateSnapshotService {
+
+		private final RateSnapshot snapshot;
+
+		FixedSnapshotService(RateSnapshot snapshot) {
+			super(null, null, null, null, null, null, false, TIMEOUT_MS, TIMEOUT_MS, TIMEOUT_MS);
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public RateSnapshot getSnapshot() {
+			return snapshot;
+		}
+	}
+}
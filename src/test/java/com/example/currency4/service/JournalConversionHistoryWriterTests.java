@@ -0,0 +1,221 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import com.example.currency4.repository.ConversionHistoryBatchRepository;
+import com.example.currency4.repository.ConversionJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalConversionHistoryWriterTests {
+
+	private static final int SEGMENT_SIZE = 4096;
+	private static final int RECORDS = 5;
+	private static final long POISON_USER_ID = 999;
+	private static final long POISON_SEQ = 3;
+	private static final int TRANSIENT_FAILURES = 2;
+	private static final long RETRY_INTERVAL_MS = 1;
+	private static final long RETRY_MAX_BACKOFF_MS = 5;
+	private static final long STARTUP_TIMEOUT_MS = 5000;
+	private static final long SHORT_STARTUP_TIMEOUT_MS = 50;
+	private static final int CACHE_ENTRIES = 10;
+	// Заголовок и одна отвергнутая запись
+	private static final int DEAD_LETTER_LINES = 2;
+	private static final LocalDateTime CONVERTED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+	private static final String NODE = "test-node";
+	private static final String LEGACY_NODE = "default";
+
+	@TempDir
+	private Path directory;
+
+	private final FakeBatchRepository repository = new FakeBatchRepository();
+	private JournalConversionHistoryWriter writer;
+
+	@AfterEach
+	void stopWriter() {
+		if (writer != null) {
+			writer.shutdown();
+		}
+	}
+
+	@Test
+	void rejectedRecordIsQuarantinedAndLaterRecordsReplay() throws Exception {
+		writeJournal();
+		repository.poisonUserId = POISON_USER_ID;
+
+		writer = startWriter(STARTUP_TIMEOUT_MS);
+
+		assertThat(repository.inserted).containsExactlyElementsOf(seqs(1, RECORDS));
+		assertThat(writer.getStats().getQuarantinedRows()).isEqualTo(1);
+		assertThat(writer.getStats().getAppliedSeq()).isEqualTo(RECORDS);
+		List<String> deadLetters = Files.readAllLines(directory.resolve("dead-letter.csv"));
+		assertThat(deadLetters).hasSize(DEAD_LETTER_LINES);
+		assertThat(deadLetters.get(1)).startsWith(POISON_SEQ + ",USD,EUR,");
+	}
+
+	@Test
+	void quarantinedRecordIsNotReplayedAfterRestart() {
+		writeJournal();
+		repository.poisonUserId = POISON_USER_ID;
+		writer = startWriter(STARTUP_TIMEOUT_MS);
+		writer.shutdown();
+
+		// БД будто бы потеряла всё после отвергнутой записи: её номер берётся из файла недоставленных
+		FakeBatchRepository restarted = new FakeBatchRepository();
+		restarted.maxJournalSeq = POISON_SEQ - 1;
+		restarted.poisonUserId = POISON_USER_ID;
+		writer = newWriter(restarted, STARTUP_TIMEOUT_MS);
+		writer.start();
+
+		assertThat(restarted.inserted).containsExactlyElementsOf(seqs(POISON_SEQ + 1, RECORDS));
+		assertThat(writer.getStats().getQuarantinedRows()).isZero();
+	}
+
+	@Test
+	void transientFailuresOnStartupAreRetried() {
+		writeJournal();
+		repository.transientFailures.set(TRANSIENT_FAILURES);
+
+		writer = startWriter(STARTUP_TIMEOUT_MS);
+
+		assertThat(repository.inserted).hasSize(RECORDS);
+		assertThat(writer.getStats().getFailedReplays()).isEqualTo(TRANSIENT_FAILURES);
+		assertThat(writer.getStats().getQuarantinedRows()).isZero();
+	}
+
+	@Test
+	void unavailableDatabaseDoesNotFailStartup() {
+		writeJournal();
+		repository.transientFailures.set(Integer.MAX_VALUE);
+
+		writer = startWriter(SHORT_STARTUP_TIMEOUT_MS);
+
+		assertThat(repository.inserted).isEmpty();
+		assertThat(writer.getStats().getReplayLag()).isEqualTo(RECORDS);
+	}
+
+	@Test
+	void journalFromBeforeNodeIdsKeepsDefaultNode() throws Exception {
+		writeJournal();
+
+		writer = newWriter(repository, "", STARTUP_TIMEOUT_MS);
+		writer.start();
+
+		assertThat(repository.nodes).containsOnly(LEGACY_NODE);
+		assertThat(Files.readString(directory.resolve("node-id"))).isEqualTo(LEGACY_NODE);
+	}
+
+	@Test
+	void newJournalGetsGeneratedNodeThatSurvivesRestart() throws Exception {
+		writer = newWriter(repository, "", STARTUP_TIMEOUT_MS);
+		writer.start();
+		writer.shutdown();
+		String generated = Files.readString(directory.resolve("node-id"));
+
+		writer = newWriter(repository, "", STARTUP_TIMEOUT_MS);
+		writer.start();
+		writer.write(history(1));
+		writer.shutdown();
+
+		assertThat(generated).isNotBlank().isNotEqualTo(LEGACY_NODE);
+		assertThat(repository.nodes).containsOnly(generated);
+	}
+
+	private JournalConversionHistoryWriter startWriter(long startupTimeoutMs) {
+		JournalConversionHistoryWriter started = newWriter(repository, startupTimeoutMs);
+		started.start();
+		return started;
+	}
+
+	private JournalConversionHistoryWriter newWriter(ConversionHistoryBatchRepository batchRepository,
+			long startupTimeoutMs) {
+		return newWriter(batchRepository, NODE, startupTimeoutMs);
+	}
+
+	private JournalConversionHistoryWriter newWriter(ConversionHistoryBatchRepository batchRepository,
+			String node, long startupTimeoutMs) {
+		HistoryQueryCache cache = new HistoryQueryCache(CACHE_ENTRIES, Duration.ofMinutes(1));
+		return new JournalConversionHistoryWriter(batchRepository, cache, directory, node,
+				SEGMENT_SIZE, RECORDS, RETRY_INTERVAL_MS, RETRY_MAX_BACKOFF_MS,
+				startupTimeoutMs, STARTUP_TIMEOUT_MS);
+	}
+
+	// Номера записей из [from, to], кроме отвергнутой
+	private static List<Long> seqs(long from, long to) {
+		return LongStream.rangeClosed(from, to).filter(seq -> seq != POISON_SEQ).boxed().toList();
+	}
+
+	// Записи остались в журнале после остановки, БД их ещё не видела
+	private void writeJournal() {
+		try (ConversionJournal journal = ConversionJournal.open(directory, SEGMENT_SIZE, 0)) {
+			for (long seq = 1; seq <= RECORDS; seq++) {
+				journal.append(history(seq == POISON_SEQ ? POISON_USER_ID : 1));
+			}
+		}
+	}
+
+	private static ConversionHistory history(long userId) {
+		User user = new User();
+		user.setId(userId);
+		ConversionHistory history = new ConversionHistory("USD", "EUR", 1, 1, user);
+		history.setConvertedAt(CONVERTED_AT);
+		return history;
+	}
+
+	private static final class FakeBatchRepository extends ConversionHistoryBatchRepository {
+
+		private final List<Long> inserted = new CopyOnWriteArrayList<>();
+		private final Set<String> nodes = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger transientFailures = new AtomicInteger();
+		private long poisonUserId;
+		private long maxJournalSeq;
+
+		FakeBatchRepository() {
+			super(null, null);
+		}
+
+		@Override
+		public void insertAll(List<ConversionHistory> histories) {
+			if (transientFailures.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+				throw new TransientDataAccessResourceException("database is restarting");
+			}
+			boolean poisoned = histories.stream()
+					.anyMatch(history -> history.getUser().getId() == poisonUserId);
+			if (poisoned) {
+				// Как внешний ключ на удалённого до воспроизведения пользователя
+				throw new DataIntegrityViolationException("conversion_history_user_id_fkey");
+			}
+			histories.forEach(history -> {
+				inserted.add(history.getJournalSeq());
+				nodes.add(history.getJournalNode());
+			});
+		}
+
+		@Override
+		public List<Long> findJournalSeqsBetween(String node, long from, long to) {
+			return inserted.stream().filter(seq -> seq >= from && seq <= to).toList();
+		}
+
+		@Override
+		public long findMaxJournalSeq(String node) {
+			return maxJournalSeq;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import com.example.currency4.repository.ConversionHistoryBatchRepository;
+import com.example.currency4.repository.ConversionJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Два экземпляра с собственными журналами пишут в одну БД: одинаковые локальные номера
+// не должны приниматься за уже перенесённые записи другого узла
+@SpringBootTest
+@Transactional
+class JournalNodeReplayTests {
+
+	private static final int SEGMENT_SIZE = 4096;
+	private static final int RECORDS = 3;
+	private static final int REPLAY_BATCH_SIZE = 10;
+	private static final long RETRY_INTERVAL_MS = 1;
+	private static final long RETRY_MAX_BACKOFF_MS = 5;
+	private static final long TIMEOUT_MS = 5000;
+	private static final String NODE_A = "node-a";
+	private static final String NODE_B = "node-b";
+
+	@TempDir
+	private Path directoryA;
+
+	@TempDir
+	private Path directoryB;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ConversionHistoryBatchRepository conversionHistoryBatchRepository;
+
+	@Autowired
+	private HistoryQueryCache historyQueryCache;
+
+	private final List<JournalConversionHistoryWriter> writers = new ArrayList<>();
+
+	@AfterEach
+	void stopWriters() {
+		writers.forEach(JournalConversionHistoryWriter::shutdown);
+	}
+
+	@Test
+	void sameSeqsFromTwoNodesAreAllReplayed() {
+		long userId = jdbcTemplate.queryForObject("INSERT INTO users (username) "
+				+ "VALUES ('journal-node-test') RETURNING id", Long.class);
+		writeJournal(directoryA, userId, 0, RECORDS);
+		writeJournal(directoryB, userId, 0, RECORDS);
+
+		JournalConversionHistoryWriter writerA = startWriter(directoryA, NODE_A);
+		JournalConversionHistoryWriter writerB = startWriter(directoryB, NODE_B);
+
+		assertThat(countRows(userId, NODE_A)).isEqualTo(RECORDS);
+		assertThat(countRows(userId, NODE_B)).isEqualTo(RECORDS);
+		assertThat(writerB.getStats().getSkippedDuplicates()).isZero();
+		assertThat(writerA.getStats().getAppliedSeq()).isEqualTo(RECORDS);
+		assertThat(writerB.getStats().getAppliedSeq()).isEqualTo(RECORDS);
+	}
+
+	@Test
+	void restartedNodeContinuesFromItsOwnWatermark() {
+		long userId = jdbcTemplate.queryForObject("INSERT INTO users (username) "
+				+ "VALUES ('journal-node-restart-test') RETURNING id", Long.class);
+		writeJournal(directoryA, userId, 0, RECORDS);
+		stop(startWriter(directoryA, NODE_A));
+		// Узел B ушёл дальше по номерам, но это не должно сдвигать отметку узла A
+		writeJournal(directoryB, userId, 0, RECORDS + RECORDS);
+		startWriter(directoryB, NODE_B);
+		// Узел A принял ещё одну конвертацию и остановился до её переноса
+		writeJournal(directoryA, userId, RECORDS, 1);
+
+		JournalConversionHistoryWriter restarted = startWriter(directoryA, NODE_A);
+
+		assertThat(countRows(userId, NODE_A)).isEqualTo(RECORDS + 1);
+		assertThat(countRows(userId, NODE_B)).isEqualTo(RECORDS + RECORDS);
+		assertThat(restarted.getStats().getAppliedSeq()).isEqualTo(RECORDS + 1);
+	}
+
+	private JournalConversionHistoryWriter startWriter(Path directory, String node) {
+		JournalConversionHistoryWriter writer = new JournalConversionHistoryWriter(
+				conversionHistoryBatchRepository, historyQueryCache, directory, node,
+				SEGMENT_SIZE, REPLAY_BATCH_SIZE, RETRY_INTERVAL_MS, RETRY_MAX_BACKOFF_MS,
+				TIMEOUT_MS, TIMEOUT_MS);
+		writers.add(writer);
+		writer.start();
+		return writer;
+	}
+
+	private void stop(JournalConversionHistoryWriter writer) {
+		writers.remove(writer);
+		writer.shutdown();
+	}
+
+	private int countRows(long userId, String node) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM conversion_history "
+				+ "WHERE user_id = ? AND journal_node = ?", Integer.class, userId, node);
+	}
+
+	// Записи, оставшиеся в журнале узла после остановки: нумерация у каждого журнала своя
+	private static void writeJournal(Path directory, long userId, long appliedSeq, int records) {
+		try (ConversionJournal journal =
+				ConversionJournal.open(directory, SEGMENT_SIZE, appliedSeq)) {
+			for (int i = 0; i < records; i++) {
+				journal.append(history(userId));
+			}
+		}
+	}
+
+	private static ConversionHistory history(long userId) {
+		User user = new User();
+		user.setId(userId);
+		return new ConversionHistory("USD", "EUR", 1, 1, user);
+	}
+}
@@ -0,0 +1,34 @@
+package com.example.currency4.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateHistoryStoreTests {
+
+	private static final long RETENTION_DAYS = 1825;
+	private static final long DOWNSAMPLE_AFTER_DAYS = 90;
+	private static final long DOWNSAMPLE_INTERVAL_MINUTES = 1440;
+	private static final double OLD_RATE = 0.9;
+	private static final double NEW_RATE = 0.95;
+	private static final int RECORDED_POINTS = 2;
+
+	// Хранилище не обращается к репозиторию при записи и поиске
+	private final RateHistoryStore store = new RateHistoryStore(null, RETENTION_DAYS,
+			DOWNSAMPLE_AFTER_DAYS, DOWNSAMPLE_INTERVAL_MINUTES);
+
+	@Test
+	void outOfOrderRecordKeepsLatestRate() {
+		Instant fetchedAt = Instant.now();
+		store.record(fetchedAt, Map.of("eur", OLD_RATE));
+
+		store.record(fetchedAt.minus(Duration.ofMinutes(1)), Map.of("EUR", NEW_RATE));
+
+		assertThat(store.rateAsOf("EUR", fetchedAt)).isEqualTo(NEW_RATE);
+		assertThat(store.getStats().getPoints()).isEqualTo(RECORDED_POINTS);
+	}
+}
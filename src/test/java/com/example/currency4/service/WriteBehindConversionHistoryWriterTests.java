@@ -0,0 +1,220 @@
+package com.example.currency4.service;
+
+import com.example.currency4.cache.HistoryQueryCache;
+import com.example.currency4.entity.ConversionHistory;
+import com.example.currency4.entity.User;
+import com.example.currency4.exceptions.ServiceOverloadedException;
+import com.example.currency4.repository.ConversionHistoryBatchRepository;
+import com.example.currency4.service.WriteBehindConversionHistoryWriter.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteBehindConversionHistoryWriterTests {
+
+	private static final int QUEUE_CAPACITY = 100;
+	private static final int BATCH_SIZE = 10;
+	private static final long FLUSH_INTERVAL_MS = 5;
+	private static final long BLOCK_TIMEOUT_MS = 50;
+	private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+	private static final int FLUSH_RETRIES = 3;
+	private static final long RETRY_BACKOFF_MS = 1;
+	private static final int RECORDS = 5;
+	// Рабочий поток занят первой записью, в очереди одна запись; пакету из трёх не хватает места
+	private static final int SMALL_QUEUE_CAPACITY = 3;
+	private static final int BATCH_RECORDS = 3;
+	private static final double POISON_AMOUNT = 3;
+	private static final int CACHE_ENTRIES = 10;
+	private static final LocalDateTime CONVERTED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	@TempDir
+	private Path directory;
+
+	private final FakeBatchRepository repository = new FakeBatchRepository();
+	private WriteBehindConversionHistoryWriter writer;
+
+	@AfterEach
+	void stopWriter() {
+		if (writer != null) {
+			repository.release.countDown();
+			writer.shutdown();
+		}
+	}
+
+	@Test
+	void transientFlushFailuresAreRetried() {
+		repository.transientFailures.set(FLUSH_RETRIES);
+		writer = startWriter(QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+
+		writeRecords();
+		writer.shutdown();
+
+		assertThat(repository.inserted).hasSize(RECORDS);
+		assertThat(writer.getStats().getRetriedBatches()).isEqualTo(FLUSH_RETRIES);
+		assertThat(writer.getStats().getFailedRows()).isZero();
+		assertThat(spillFile()).doesNotExist();
+	}
+
+	@Test
+	void batchIsSpilledWhenRetriesAreExhausted() throws Exception {
+		repository.transientFailures.set(Integer.MAX_VALUE);
+		writer = startWriter(QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+
+		writeRecords();
+		writer.shutdown();
+
+		assertThat(repository.inserted).isEmpty();
+		assertThat(writer.getStats().getSpilledRows()).isEqualTo(RECORDS);
+		// Заголовок и по строке на каждую запись
+		assertThat(Files.readAllLines(spillFile())).hasSize(RECORDS + 1);
+	}
+
+	@Test
+	void rejectedRowIsSpilledAndOthersAreWritten() throws Exception {
+		repository.poisonAmount = POISON_AMOUNT;
+		writer = startWriter(QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+
+		writeRecords();
+		writer.shutdown();
+
+		assertThat(repository.inserted).hasSize(RECORDS - 1).doesNotContain(POISON_AMOUNT);
+		assertThat(writer.getStats().getRetriedBatches()).isZero();
+		assertThat(writer.getStats().getSpilledRows()).isEqualTo(1);
+		assertThat(Files.readAllLines(spillFile()).get(1)).startsWith(",USD,EUR," + POISON_AMOUNT);
+	}
+
+	@Test
+	void fullQueueInBlockModeReportsOverload() throws Exception {
+		repository.release = new CountDownLatch(1);
+		writer = startWriter(1, OverflowPolicy.BLOCK);
+
+		// Первая запись занимает рабочий поток, вторая — единственное место в очереди
+		writer.write(history(1));
+		assertThat(repository.entered.await(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+		writer.write(history(1));
+
+		assertThatThrownBy(() -> writer.write(history(1)))
+				.isInstanceOf(ServiceOverloadedException.class);
+	}
+
+	@Test
+	void batchThatDoesNotFitIsNotQueuedAtAll() throws Exception {
+		repository.release = new CountDownLatch(1);
+		writer = startWriter(SMALL_QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+		writer.write(history(1));
+		assertThat(repository.entered.await(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+		writer.write(history(1));
+
+		List<ConversionHistory> batch = IntStream.rangeClosed(1, BATCH_RECORDS)
+				.mapToObj(WriteBehindConversionHistoryWriterTests::history)
+				.toList();
+		assertThatThrownBy(() -> writer.writeAll(batch))
+				.isInstanceOf(ServiceOverloadedException.class);
+
+		assertThat(writer.getStats().getQueueDepth()).isEqualTo(1);
+		repository.release.countDown();
+		writer.shutdown();
+		// Первая и ожидавшая в очереди записи; пакет не попал в очередь ни одной строкой
+		assertThat(repository.inserted).containsExactly(1.0, 1.0);
+	}
+
+	@Test
+	void batchLargerThanQueueIsWrittenDirectly() {
+		writer = startWriter(SMALL_QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+
+		List<ConversionHistory> batch = IntStream.rangeClosed(1, SMALL_QUEUE_CAPACITY + 1)
+				.mapToObj(WriteBehindConversionHistoryWriterTests::history)
+				.toList();
+		writer.writeAll(batch);
+
+		assertThat(repository.inserted).hasSize(SMALL_QUEUE_CAPACITY + 1);
+		assertThat(writer.getStats().getWrittenByCaller()).isEqualTo(SMALL_QUEUE_CAPACITY + 1);
+	}
+
+	@Test
+	void writeAfterShutdownGoesDirectly() {
+		writer = startWriter(QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+		writer.shutdown();
+
+		writer.write(history(1));
+
+		assertThat(repository.inserted).hasSize(1);
+		assertThat(writer.getStats().getWrittenByCaller()).isEqualTo(1);
+		assertThat(writer.getStats().getQueueDepth()).isZero();
+	}
+
+	private WriteBehindConversionHistoryWriter startWriter(int queueCapacity,
+			OverflowPolicy overflowPolicy) {
+		HistoryQueryCache cache = new HistoryQueryCache(CACHE_ENTRIES, Duration.ofMinutes(1));
+		WriteBehindConversionHistoryWriter started = new WriteBehindConversionHistoryWriter(
+				repository, cache, queueCapacity, BATCH_SIZE, FLUSH_INTERVAL_MS,
+				overflowPolicy, BLOCK_TIMEOUT_MS, SHUTDOWN_TIMEOUT_MS, FLUSH_RETRIES,
+				RETRY_BACKOFF_MS, spillFile().toString());
+		started.start();
+		return started;
+	}
+
+	private void writeRecords() {
+		for (int amount = 1; amount <= RECORDS; amount++) {
+			writer.write(history(amount));
+		}
+	}
+
+	private Path spillFile() {
+		return directory.resolve("spill").resolve("history-spill.csv");
+	}
+
+	private static ConversionHistory history(double amount) {
+		User user = new User();
+		user.setId(1L);
+		ConversionHistory history = new ConversionHistory("USD", "EUR", amount, amount, user);
+		history.setConvertedAt(CONVERTED_AT);
+		return history;
+	}
+
+	private static final class FakeBatchRepository extends ConversionHistoryBatchRepository {
+
+		private final List<Double> inserted = new CopyOnWriteArrayList<>();
+		private final AtomicInteger transientFailures = new AtomicInteger();
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private volatile CountDownLatch release = new CountDownLatch(0);
+		private double poisonAmount;
+
+		FakeBatchRepository() {
+			super(null, null);
+		}
+
+		@Override
+		public void insertAll(List<ConversionHistory> histories) {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (transientFailures.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+				throw new TransientDataAccessResourceException("database is restarting");
+			}
+			if (histories.stream().anyMatch(history -> history.getAmount() == poisonAmount)) {
+				throw new DataIntegrityViolationException("conversion_history_user_id_fkey");
+			}
+			histories.forEach(history -> inserted.add(history.getAmount()));
+		}
+	}
+}